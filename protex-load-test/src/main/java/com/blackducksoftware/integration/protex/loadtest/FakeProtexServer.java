@@ -0,0 +1,163 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex.loadtest;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.jaxws.JaxWsServerFactoryBean;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.eclipse.jetty.server.AbstractHttpConnection;
+
+import com.blackducksoftware.sdk.protex.project.ProjectApi;
+import com.blackducksoftware.sdk.protex.project.codetree.CodeTreeApi;
+import com.blackducksoftware.sdk.protex.report.ReportApi;
+
+/**
+ * Local SOAP server that publishes the Protex SDK project, code tree and report services, answered by a
+ * {@link FakeProtexService}.
+ */
+public class FakeProtexServer {
+	public static final String SDK_PATH = "/protex-sdk/v7_0";
+
+	private static final QName WS_SECURITY_HEADER = new QName(
+			"http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd", "Security");
+
+	private final LoadTestConfig config;
+
+	private final List<Server> servers = new ArrayList<Server>();
+
+	public FakeProtexServer(final LoadTestConfig config) {
+		this.config = config;
+	}
+
+	public String getServerUrl() {
+		return "http://localhost:" + config.getPort();
+	}
+
+	public synchronized void start() {
+		if (!servers.isEmpty()) {
+			throw new IllegalStateException("The fake Protex server is already running.");
+		}
+		final FakeProtexService service = new FakeProtexService(config);
+		final ConnectionDropInterceptor connectionDropInterceptor = new ConnectionDropInterceptor(
+				config.getConnectionDropRate());
+		final Map<String, Class<?>> apis = new LinkedHashMap<String, Class<?>>();
+		apis.put("/project", ProjectApi.class);
+		apis.put("/codetree", CodeTreeApi.class);
+		apis.put("/report", ReportApi.class);
+
+		for (final Map.Entry<String, Class<?>> api : apis.entrySet()) {
+			final JaxWsServerFactoryBean factory = new JaxWsServerFactoryBean();
+			factory.setServiceClass(api.getValue());
+			factory.setServiceBean(Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { api.getValue() }, service));
+			factory.setAddress(getServerUrl() + SDK_PATH + api.getKey());
+			factory.getInInterceptors().add(connectionDropInterceptor);
+			factory.getInInterceptors().add(new AcceptSecurityHeaderInterceptor());
+			servers.add(factory.create());
+		}
+	}
+
+	public synchronized void stop() {
+		for (final Server server : servers) {
+			server.stop();
+			server.destroy();
+		}
+		servers.clear();
+	}
+
+	/**
+	 * Closes the client's connection on the Jetty transport before the request is dispatched, so the client sees a
+	 * real connection drop instead of a SOAP fault.
+	 */
+	private static class ConnectionDropInterceptor extends AbstractPhaseInterceptor<Message> {
+		private final double connectionDropRate;
+
+		private final Random random = new Random();
+
+		private ConnectionDropInterceptor(final double connectionDropRate) {
+			super(Phase.RECEIVE);
+			this.connectionDropRate = connectionDropRate;
+		}
+
+		@Override
+		public void handleMessage(final Message message) {
+			if (connectionDropRate <= 0 || !shouldDrop()) {
+				return;
+			}
+			final AbstractHttpConnection connection = AbstractHttpConnection.getCurrentConnection();
+			if (connection == null) {
+				throw new Fault(new IllegalStateException("No Jetty connection to drop"));
+			}
+			try {
+				connection.getEndPoint().close();
+			} catch (final IOException e) {
+				throw new Fault(e);
+			}
+			// Nothing can be written to a closed connection, so stop handling the request
+			message.getInterceptorChain().abort();
+		}
+
+		private boolean shouldDrop() {
+			synchronized (random) {
+				return random.nextDouble() < connectionDropRate;
+			}
+		}
+	}
+
+	/**
+	 * The client always sends a WS-Security header marked mustUnderstand. The fake server does not check
+	 * credentials, it only has to claim the header so CXF accepts the request.
+	 */
+	private static class AcceptSecurityHeaderInterceptor extends AbstractSoapInterceptor {
+		private AcceptSecurityHeaderInterceptor() {
+			super(Phase.PRE_PROTOCOL);
+		}
+
+		@Override
+		public Set<QName> getUnderstoodHeaders() {
+			return Collections.singleton(WS_SECURITY_HEADER);
+		}
+
+		@Override
+		public void handleMessage(final SoapMessage message) {
+		}
+	}
+}
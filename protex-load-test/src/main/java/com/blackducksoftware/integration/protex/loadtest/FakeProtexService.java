@@ -0,0 +1,180 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex.loadtest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.blackducksoftware.sdk.fault.ErrorCode;
+import com.blackducksoftware.sdk.fault.ErrorDetails;
+import com.blackducksoftware.sdk.fault.SdkFault;
+import com.blackducksoftware.sdk.protex.project.Project;
+import com.blackducksoftware.sdk.protex.project.ProjectRequest;
+import com.blackducksoftware.sdk.protex.project.codetree.CodeTreeNode;
+import com.blackducksoftware.sdk.protex.project.codetree.CodeTreeNodeRequest;
+import com.blackducksoftware.sdk.protex.project.codetree.CodeTreeNodeType;
+import com.blackducksoftware.sdk.protex.project.codetree.NodeCount;
+import com.blackducksoftware.sdk.protex.project.codetree.NodeCountType;
+import com.blackducksoftware.sdk.protex.report.Report;
+import com.blackducksoftware.sdk.protex.report.ReportTemplate;
+
+/**
+ * In-memory implementation of the Protex SDK calls that ProtexFacade makes. It is used as the service bean behind
+ * the SDK's own JAX-WS interfaces, so only the calls ProtexFacade needs are answered. Every call waits for the
+ * configured latency and may fail with an injected fault.
+ */
+public class FakeProtexService implements InvocationHandler {
+	private final LoadTestConfig config;
+
+	private final Random random = new Random();
+
+	private final AtomicLong nextProjectId = new AtomicLong();
+
+	private final ConcurrentMap<String, Project> projectsByName = new ConcurrentHashMap<String, Project>();
+
+	private final ConcurrentMap<String, Project> projectsById = new ConcurrentHashMap<String, Project>();
+
+	public FakeProtexService(final LoadTestConfig config) {
+		this.config = config;
+	}
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class) {
+			return method.invoke(this, args);
+		}
+		simulateLatency();
+		injectFaults();
+
+		final String name = method.getName();
+		if ("getProjectByName".equals(name)) {
+			return getProject(projectsByName, (String) args[0]);
+		} else if ("getProjectById".equals(name)) {
+			return getProject(projectsById, (String) args[0]);
+		} else if ("createProject".equals(name)) {
+			return addProject(((ProjectRequest) args[0]).getName());
+		} else if ("cloneProject".equals(name)) {
+			getProject(projectsById, (String) args[0]);
+			return addProject((String) args[1]);
+		} else if ("updateProject".equals(name)) {
+			final Project project = getProject(projectsById, (String) args[0]);
+			project.setAnalysisSourceLocation(((ProjectRequest) args[1]).getAnalysisSourceLocation());
+			return null;
+		} else if ("getCodeTreeNodes".equals(name)) {
+			getProject(projectsById, (String) args[0]);
+			return getCodeTreeNodes((CodeTreeNodeRequest) args[2]);
+		} else if ("getReportTemplateByTitle".equals(name)) {
+			final ReportTemplate reportTemplate = new ReportTemplate();
+			reportTemplate.setReportTemplateId("template-" + args[0]);
+			reportTemplate.setTitle((String) args[0]);
+			return reportTemplate;
+		} else if ("generateProjectReport".equals(name)) {
+			getProject(projectsById, (String) args[0]);
+			return new Report();
+		}
+		throw new UnsupportedOperationException("The fake Protex server does not implement " + name);
+	}
+
+	private void simulateLatency() throws InterruptedException {
+		long latency = config.getLatencyMillis();
+		if (config.getLatencyJitterMillis() > 0) {
+			latency += (long) (nextDouble() * config.getLatencyJitterMillis());
+		}
+		if (latency > 0) {
+			Thread.sleep(latency);
+		}
+	}
+
+	private void injectFaults() throws SdkFault {
+		if (config.getServerErrorRate() > 0 && nextDouble() < config.getServerErrorRate()) {
+			// Surfaces to the client as an HTTP 500 SOAP fault without an SdkFault, like a failing server
+			throw new IllegalStateException("Injected server error");
+		}
+		if (config.getFaultRate() > 0 && nextDouble() < config.getFaultRate()) {
+			throw createFault(config.getFaultCode(), "Injected fault");
+		}
+	}
+
+	private double nextDouble() {
+		synchronized (random) {
+			return random.nextDouble();
+		}
+	}
+
+	private Project getProject(final ConcurrentMap<String, Project> projects, final String key) throws SdkFault {
+		final Project project = projects.get(key);
+		if (project == null) {
+			throw createFault(ErrorCode.PROJECT_NOT_FOUND, "The project '" + key + "' was not found");
+		}
+		return project;
+	}
+
+	private synchronized String addProject(final String projectName) throws SdkFault {
+		if (projectsByName.containsKey(projectName)) {
+			throw createFault(ErrorCode.DUPLICATE_PROJECT_NAME, "The project '" + projectName + "' already exists");
+		}
+		final Project project = new Project();
+		project.setProjectId("c_loadtest_" + nextProjectId.incrementAndGet());
+		project.setName(projectName);
+		projectsByName.put(projectName, project);
+		projectsById.put(project.getProjectId(), project);
+		return project.getProjectId();
+	}
+
+	private List<CodeTreeNode> getCodeTreeNodes(final CodeTreeNodeRequest request) {
+		final int treeSize = Math.max(1, config.getTreeSize());
+		final List<CodeTreeNode> nodes = new ArrayList<CodeTreeNode>(treeSize);
+		for (int i = 0; i < treeSize; i++) {
+			final CodeTreeNode node = new CodeTreeNode();
+			if (i == 0) {
+				node.setName("/");
+				node.setNodeType(CodeTreeNodeType.FOLDER);
+			} else {
+				node.setName("/src/File" + i + ".java");
+				node.setNodeType(CodeTreeNodeType.FILE);
+			}
+			for (final NodeCountType countType : request.getCounts()) {
+				final NodeCount nodeCount = new NodeCount();
+				nodeCount.setCountType(countType);
+				nodeCount.setCount(i == 0 ? treeSize / 10 : 0L);
+				node.getNodeCounts().add(nodeCount);
+			}
+			nodes.add(node);
+		}
+		return nodes;
+	}
+
+	private SdkFault createFault(final ErrorCode errorCode, final String message) {
+		final ErrorDetails faultInfo = new ErrorDetails();
+		faultInfo.setErrorCode(errorCode);
+		faultInfo.setMessage(message);
+		return new SdkFault(message, faultInfo);
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex.loadtest;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the latency of every call made during a load test and reports the throughput and latency percentiles
+ * per operation.
+ */
+public class LatencyRecorder {
+	private final Map<String, OperationStats> operations = new LinkedHashMap<String, OperationStats>();
+
+	public void record(final String operation, final long elapsedNanos, final boolean success) {
+		OperationStats stats;
+		synchronized (operations) {
+			stats = operations.get(operation);
+			if (stats == null) {
+				stats = new OperationStats();
+				operations.put(operation, stats);
+			}
+		}
+		synchronized (stats) {
+			stats.latencies.add(elapsedNanos);
+			if (!success) {
+				stats.failures++;
+			}
+		}
+	}
+
+	public void report(final PrintStream out, final long wallClockNanos) {
+		final double seconds = wallClockNanos / 1000000000.0;
+		out.println(String.format("%-20s %8s %8s %10s %10s %10s %10s %10s", "operation", "calls", "failed",
+				"calls/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+		synchronized (operations) {
+			for (final Map.Entry<String, OperationStats> operation : operations.entrySet()) {
+				final OperationStats stats = operation.getValue();
+				final List<Long> latencies;
+				final int failures;
+				synchronized (stats) {
+					latencies = new ArrayList<Long>(stats.latencies);
+					failures = stats.failures;
+				}
+				Collections.sort(latencies);
+				out.println(String.format("%-20s %8d %8d %10.1f %10.1f %10.1f %10.1f %10.1f", operation.getKey(),
+						latencies.size(), failures, latencies.size() / seconds, percentile(latencies, 50),
+						percentile(latencies, 90), percentile(latencies, 99), percentile(latencies, 100)));
+			}
+		}
+		out.println(String.format("Wall clock : %.1f s", seconds));
+	}
+
+	private double percentile(final List<Long> sortedLatencies, final int percentile) {
+		if (sortedLatencies.isEmpty()) {
+			return 0.0;
+		}
+		final int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.size()) - 1;
+		return sortedLatencies.get(Math.max(0, index)) / 1000000.0;
+	}
+
+	private static class OperationStats {
+		private final List<Long> latencies = new ArrayList<Long>();
+
+		private int failures;
+	}
+}
@@ -0,0 +1,255 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex.loadtest;
+
+import com.blackducksoftware.sdk.fault.ErrorCode;
+
+/**
+ * Settings for a load test run. Every setting can be given on the command line as --name=value, e.g.
+ * --clients=200 --latencyMillis=150 --faultRate=0.01.
+ */
+public class LoadTestConfig {
+	private int port = 18080;
+
+	private int clients = 50;
+
+	private int iterations = 10;
+
+	private long latencyMillis = 100L;
+
+	private long latencyJitterMillis = 50L;
+
+	private int treeSize = 1000;
+
+	private double faultRate = 0.0;
+
+	private ErrorCode faultCode;
+
+	private double serverErrorRate = 0.0;
+
+	private double connectionDropRate = 0.0;
+
+	private long timeoutSeconds = 300L;
+
+	private boolean sharedProjects;
+
+	public static LoadTestConfig fromArgs(final String[] args) {
+		final LoadTestConfig config = new LoadTestConfig();
+		for (final String arg : args) {
+			if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+				throw new IllegalArgumentException("Arguments should look like --name=value, but got : " + arg);
+			}
+			final String name = arg.substring(2, arg.indexOf('='));
+			final String value = arg.substring(arg.indexOf('=') + 1);
+			if ("port".equals(name)) {
+				config.setPort(Integer.parseInt(value));
+			} else if ("clients".equals(name)) {
+				config.setClients(Integer.parseInt(value));
+			} else if ("iterations".equals(name)) {
+				config.setIterations(Integer.parseInt(value));
+			} else if ("latencyMillis".equals(name)) {
+				config.setLatencyMillis(Long.parseLong(value));
+			} else if ("latencyJitterMillis".equals(name)) {
+				config.setLatencyJitterMillis(Long.parseLong(value));
+			} else if ("treeSize".equals(name)) {
+				config.setTreeSize(Integer.parseInt(value));
+			} else if ("faultRate".equals(name)) {
+				config.setFaultRate(Double.parseDouble(value));
+			} else if ("faultCode".equals(name)) {
+				config.setFaultCode(ErrorCode.valueOf(value));
+			} else if ("serverErrorRate".equals(name)) {
+				config.setServerErrorRate(Double.parseDouble(value));
+			} else if ("connectionDropRate".equals(name)) {
+				config.setConnectionDropRate(Double.parseDouble(value));
+			} else if ("timeoutSeconds".equals(name)) {
+				config.setTimeoutSeconds(Long.parseLong(value));
+			} else if ("sharedProjects".equals(name)) {
+				if (!"true".equals(value) && !"false".equals(value)) {
+					throw new IllegalArgumentException("sharedProjects should be true or false, but was : " + value);
+				}
+				config.setSharedProjects(Boolean.parseBoolean(value));
+			} else {
+				throw new IllegalArgumentException("Unknown argument : " + name);
+			}
+		}
+		config.validate();
+		return config;
+	}
+
+	public void validate() {
+		if (port < 1 || port > 65535) {
+			throw new IllegalArgumentException("port should be between 1 and 65535, but was : " + port);
+		}
+		if (clients < 1) {
+			throw new IllegalArgumentException("clients should be at least 1, but was : " + clients);
+		}
+		if (iterations < 1) {
+			throw new IllegalArgumentException("iterations should be at least 1, but was : " + iterations);
+		}
+		if (latencyMillis < 0) {
+			throw new IllegalArgumentException("latencyMillis can not be negative, but was : " + latencyMillis);
+		}
+		if (latencyJitterMillis < 0) {
+			throw new IllegalArgumentException(
+					"latencyJitterMillis can not be negative, but was : " + latencyJitterMillis);
+		}
+		if (treeSize < 1) {
+			throw new IllegalArgumentException("treeSize should be at least 1, but was : " + treeSize);
+		}
+		if (timeoutSeconds < 1) {
+			throw new IllegalArgumentException("timeoutSeconds should be at least 1, but was : " + timeoutSeconds);
+		}
+		checkRate("faultRate", faultRate);
+		checkRate("serverErrorRate", serverErrorRate);
+		checkRate("connectionDropRate", connectionDropRate);
+	}
+
+	private void checkRate(final String name, final double rate) {
+		if (!(rate >= 0.0 && rate <= 1.0)) {
+			throw new IllegalArgumentException(name + " should be between 0 and 1, but was : " + rate);
+		}
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public void setPort(final int port) {
+		this.port = port;
+	}
+
+	public int getClients() {
+		return clients;
+	}
+
+	public void setClients(final int clients) {
+		this.clients = clients;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public void setIterations(final int iterations) {
+		this.iterations = iterations;
+	}
+
+	public long getLatencyMillis() {
+		return latencyMillis;
+	}
+
+	public void setLatencyMillis(final long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	public long getLatencyJitterMillis() {
+		return latencyJitterMillis;
+	}
+
+	public void setLatencyJitterMillis(final long latencyJitterMillis) {
+		this.latencyJitterMillis = latencyJitterMillis;
+	}
+
+	public int getTreeSize() {
+		return treeSize;
+	}
+
+	public void setTreeSize(final int treeSize) {
+		this.treeSize = treeSize;
+	}
+
+	/**
+	 * The fraction of calls, between 0 and 1, that fail with an SdkFault carrying the {@link #getFaultCode()}.
+	 */
+	public double getFaultRate() {
+		return faultRate;
+	}
+
+	public void setFaultRate(final double faultRate) {
+		this.faultRate = faultRate;
+	}
+
+	/**
+	 * The error code of the injected SdkFaults, or null to inject faults without an error code.
+	 */
+	public ErrorCode getFaultCode() {
+		return faultCode;
+	}
+
+	public void setFaultCode(final ErrorCode faultCode) {
+		this.faultCode = faultCode;
+	}
+
+	/**
+	 * The fraction of calls, between 0 and 1, that fail with a server error (an HTTP 500 SOAP fault without an
+	 * SdkFault).
+	 */
+	public double getServerErrorRate() {
+		return serverErrorRate;
+	}
+
+	public void setServerErrorRate(final double serverErrorRate) {
+		this.serverErrorRate = serverErrorRate;
+	}
+
+	/**
+	 * The fraction of calls, between 0 and 1, whose connection is closed by the server before any response is
+	 * written.
+	 */
+	public double getConnectionDropRate() {
+		return connectionDropRate;
+	}
+
+	public void setConnectionDropRate(final double connectionDropRate) {
+		this.connectionDropRate = connectionDropRate;
+	}
+
+	public long getTimeoutSeconds() {
+		return timeoutSeconds;
+	}
+
+	public void setTimeoutSeconds(final long timeoutSeconds) {
+		this.timeoutSeconds = timeoutSeconds;
+	}
+
+	/**
+	 * Whether all the clients work on the same project names, so they race to create each project instead of every
+	 * client creating its own.
+	 */
+	public boolean isSharedProjects() {
+		return sharedProjects;
+	}
+
+	public void setSharedProjects(final boolean sharedProjects) {
+		this.sharedProjects = sharedProjects;
+	}
+
+	@Override
+	public String toString() {
+		return "clients=" + clients + ", iterations=" + iterations + ", latencyMillis=" + latencyMillis
+				+ ", latencyJitterMillis=" + latencyJitterMillis + ", treeSize=" + treeSize + ", faultRate="
+				+ faultRate + ", faultCode=" + faultCode + ", serverErrorRate=" + serverErrorRate + ", connectionDropRate="
+				+ connectionDropRate + ", sharedProjects=" + sharedProjects;
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex.loadtest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+import com.blackducksoftware.integration.suite.sdk.logging.LogLevel;
+import com.blackducksoftware.sdk.protex.report.ReportFormat;
+import com.blackducksoftware.sdk.protex.report.ReportTemplate;
+
+/**
+ * Starts a {@link FakeProtexServer} and drives concurrent ProtexFacade clients through the create, prep, count and
+ * report workflow of a CI build, then prints the throughput and latency percentiles of every operation.
+ */
+public class ProtexLoadTest {
+	private static final String REPORT_TEMPLATE = "Load Test Report";
+
+	private final LoadTestConfig config;
+
+	private final LatencyRecorder recorder = new LatencyRecorder();
+
+	public ProtexLoadTest(final LoadTestConfig config) {
+		this.config = config;
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final LoadTestConfig config;
+		try {
+			config = LoadTestConfig.fromArgs(args);
+		} catch (final IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: ProtexLoadTest [--port=n] [--clients=n] [--iterations=n] [--latencyMillis=n]"
+					+ " [--latencyJitterMillis=n] [--treeSize=n] [--faultRate=0..1] [--faultCode=ErrorCode]"
+					+ " [--serverErrorRate=0..1] [--connectionDropRate=0..1] [--timeoutSeconds=n]"
+					+ " [--sharedProjects=true|false]");
+			System.exit(1);
+			return;
+		}
+		System.out.println("Running the Protex load test with " + config);
+
+		final FakeProtexServer server = new FakeProtexServer(config);
+		server.start();
+		try {
+			new ProtexLoadTest(config).run(server.getServerUrl());
+		} finally {
+			server.stop();
+		}
+	}
+
+	public void run(final String serverUrl) throws InterruptedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(config.getClients());
+		final long start = System.nanoTime();
+		for (int client = 0; client < config.getClients(); client++) {
+			final int clientNumber = client;
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					runClient(serverUrl, clientNumber);
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		recorder.report(System.out, System.nanoTime() - start);
+	}
+
+	private void runClient(final String serverUrl, final int clientNumber) {
+		final ProtexFacade facade;
+		try {
+			facade = new ProtexFacade(serverUrl, "loadtest" + clientNumber + "@loadtest.com", "loadtest",
+					config.getTimeoutSeconds());
+			facade.setLogger(createQuietLogger());
+		} catch (final Exception e) {
+			System.err.println("Could not create the ProtexFacade for client " + clientNumber + " : " + e.getMessage());
+			return;
+		}
+
+		for (int iteration = 0; iteration < config.getIterations(); iteration++) {
+			final String projectName = config.isSharedProjects() ? "loadtest-shared-" + iteration
+					: "loadtest-" + clientNumber + "-" + iteration;
+			final long workflowStart = System.nanoTime();
+			boolean success = false;
+			try {
+				final String projectId = time("ensureProject", new Step<String>() {
+					@Override
+					public String run() throws Exception {
+						return facade.ensureProject(projectName, null);
+					}
+				});
+				time("prepScanProject", new Step<Void>() {
+					@Override
+					public Void run() throws Exception {
+						facade.protexPrepScanProject(projectId, "localhost", "/loadtest/" + projectName);
+						return null;
+					}
+				});
+				time("getPendingIds", new Step<Long>() {
+					@Override
+					public Long run() throws Exception {
+						return facade.getPendingIds(projectId);
+					}
+				});
+				time("getViolationCount", new Step<Long>() {
+					@Override
+					public Long run() throws Exception {
+						return facade.getViolationCount(projectId);
+					}
+				});
+				final ReportTemplate template = time("getReportTemplate", new Step<ReportTemplate>() {
+					@Override
+					public ReportTemplate run() throws Exception {
+						return facade.getReportTemplate(REPORT_TEMPLATE);
+					}
+				});
+				time("createReport", new Step<Object>() {
+					@Override
+					public Object run() throws Exception {
+						return facade.createReportFromTemplate(projectId, template.getReportTemplateId(),
+								ReportFormat.HTML, false);
+					}
+				});
+				success = true;
+			} catch (final Exception e) {
+				// Already recorded as a failure of the step that threw it
+			} finally {
+				recorder.record("workflow", System.nanoTime() - workflowStart, success);
+			}
+		}
+	}
+
+	private <T> T time(final String operation, final Step<T> step) throws Exception {
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			final T result = step.run();
+			success = true;
+			return result;
+		} finally {
+			recorder.record(operation, System.nanoTime() - start, success);
+		}
+	}
+
+	/**
+	 * ProtexFacade logs every call, which would swamp the report and skew the timings, so the clients log nowhere.
+	 */
+	private IntLogger createQuietLogger() {
+		return (IntLogger) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { IntLogger.class },
+				new InvocationHandler() {
+			private LogLevel logLevel = LogLevel.OFF;
+
+			@Override
+			public Object invoke(final Object proxy, final Method method, final Object[] args) throws Exception {
+				if (method.getDeclaringClass() == Object.class) {
+					return method.invoke(this, args);
+				} else if ("getLogLevel".equals(method.getName())) {
+					return logLevel;
+				} else if ("setLogLevel".equals(method.getName())) {
+					logLevel = (LogLevel) args[0];
+				} else if (method.getReturnType() == boolean.class) {
+					return false;
+				}
+				return null;
+			}
+		});
+	}
+
+	private interface Step<T> {
+		T run() throws Exception;
+	}
+}
@@ -29,9 +29,18 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
@@ -40,6 +49,7 @@ import javax.crypto.NoSuchPaddingException;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.cxf.transports.http.configuration.ProxyServerType;
 
+import com.blackducksoftware.integration.protex.cache.CodeTreeSnapshotStore;
 import com.blackducksoftware.integration.protex.exceptions.ProtexCredentialsValidationException;
 import com.blackducksoftware.integration.protex.sdk.ProtexServerProxy;
 import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConfigException;
@@ -54,6 +64,7 @@ import com.blackducksoftware.sdk.protex.project.AnalysisSourceLocation;
 import com.blackducksoftware.sdk.protex.project.AnalysisSourceRepository;
 import com.blackducksoftware.sdk.protex.project.CloneOption;
 import com.blackducksoftware.sdk.protex.project.Project;
+import com.blackducksoftware.sdk.protex.project.ProjectInfo;
 import com.blackducksoftware.sdk.protex.project.ProjectRequest;
 import com.blackducksoftware.sdk.protex.project.codetree.CodeTreeNode;
 import com.blackducksoftware.sdk.protex.project.codetree.CodeTreeNodeRequest;
@@ -69,12 +80,27 @@ public class ProtexFacade implements Serializable {
 
 	public static final String PROJECT_NAME_TOO_LONG = "Project name should be under \"250\" characters in length.";
 
+	/**
+	 * Fault codes that are an expected outcome of a lookup rather than a failure. When lightweight fault translation
+	 * is enabled these are wrapped without filling in a new stack trace.
+	 */
+	public static final Set<ErrorCode> EXPECTED_FAULT_CODES = Collections
+			.unmodifiableSet(EnumSet.of(ErrorCode.PROJECT_NOT_FOUND, ErrorCode.REPORT_TEMPLATE_NOT_FOUND));
+
 	protected ProtexServerProxy serverProxy;
 
 	private IntLogger logger;
 
+	private boolean lightweightFaultTranslation;
+
+	private CodeTreeSnapshotStore codeTreeSnapshotStore;
+
+	private transient ConcurrentMap<String, FutureTask<String>> pendingProjects;
+
 	public String serverUrl;
 
+	private String username;
+
 	public ProtexFacade(final String serverUrl, final String username, final String password)
 			throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, IllegalBlockSizeException,
 			BadPaddingException, IOException, ServerConfigException {
@@ -101,6 +127,7 @@ public class ProtexFacade implements Serializable {
 		serverProxy.setUseContextClassLoader(true);
 
 		this.serverUrl = serverUrl;
+		this.username = username;
 	}
 
 	public ProtexFacade(final String serverUrl, final String username, final String password, final long timeout,
@@ -117,6 +144,7 @@ public class ProtexFacade implements Serializable {
 		serverProxy.setUseContextClassLoader(true);
 
 		this.serverUrl = serverUrl;
+		this.username = username;
 	}
 
 	public String getServerUrl() {
@@ -128,6 +156,34 @@ public class ProtexFacade implements Serializable {
 		serverProxy.setLogger(logger);
 	}
 
+	public boolean isLightweightFaultTranslation() {
+		return lightweightFaultTranslation;
+	}
+
+	/**
+	 * When enabled, SdkFaults with one of the {@link #EXPECTED_FAULT_CODES} are translated into a
+	 * ProtexFacadeException that does not capture its own stack trace.
+	 */
+	public void setLightweightFaultTranslation(final boolean lightweightFaultTranslation) {
+		this.lightweightFaultTranslation = lightweightFaultTranslation;
+	}
+
+	public CodeTreeSnapshotStore getCodeTreeSnapshotStore() {
+		return codeTreeSnapshotStore;
+	}
+
+	/**
+	 * Sets the local store used to answer code tree requests for an unchanged project from disk. Only
+	 * getCodeTreeNodes calls that provide the time of the project's last analysis use the store.
+	 *
+	 * The tree itself, the node names and types, only changes with a new analysis, so it stays valid. The node counts
+	 * in a snapshot are the ones from when it was taken: identifications, approvals and policy changes alter them
+	 * without a new analysis. That is why getPendingIds, getViolationCount and getNodeCounts always ask the server.
+	 */
+	public void setCodeTreeSnapshotStore(final CodeTreeSnapshotStore codeTreeSnapshotStore) {
+		this.codeTreeSnapshotStore = codeTreeSnapshotStore;
+	}
+
 	public void setProxySettings(final String proxyName, final int proxyPort, final ProxyServerType proxyType,
 			final Boolean updateApis) {
 		this.setProxySettings(proxyName, proxyPort, proxyType, updateApis, null, null);
@@ -154,16 +210,12 @@ public class ProtexFacade implements Serializable {
 			// Does not matter if we find the fake user or not
 		} catch (final SdkFault e) {
 			logger.setLogLevel(originalLogLevel);
-			if (e.getFaultInfo().getErrorCode() != null) {
-				if (e.getFaultInfo().getErrorCode().equals(ErrorCode.PROJECT_NOT_FOUND)) {
-					// Should not find the user FakeUser@Fake.com
-					logger.info("Validation was successful!");
-				} else {
-					logger.error("Validation error: " + e.getFaultInfo().getErrorCode());
-					throw new ProtexCredentialsValidationException(e.getMessage(), e);
-				}
+			final ErrorCode errorCode = getErrorCode(e);
+			if (errorCode == ErrorCode.PROJECT_NOT_FOUND) {
+				// Should not find the project fakeProjectId
+				logger.info("Validation was successful!");
 			} else {
-				logger.error("Validation error: " + e.getFaultInfo().getErrorCode());
+				logger.error("Validation error: " + errorCode);
 				throw new ProtexCredentialsValidationException(e.getMessage(), e);
 			}
 
@@ -179,31 +231,62 @@ public class ProtexFacade implements Serializable {
 		if (StringUtils.isBlank(projectName)) {
 			throw new IllegalArgumentException("Need to provide the name of the Protex Project to be checked.");
 		}
+		if (findProject(projectName) != null) {
+			logger.info("The project '" + projectName + "' exists.");
+			return true;
+		} else {
+			logger.info("The project '" + projectName + "' does not exist.");
+			return false;
+		}
+	}
+
+	/**
+	 * Looks up the project by name. A missing project is an expected outcome and is reported by returning null
+	 * instead of throwing, so probes don't pay for exception construction on every miss.
+	 *
+	 * @return the Project, or null if it does not exist
+	 * @throws ServerConfigException
+	 * @throws ProtexFacadeException
+	 * @throws ServerConnectionException
+	 */
+	public Project findProject(final String projectName)
+			throws ServerConfigException, ServerConnectionException, ProtexFacadeException {
+		if (StringUtils.isBlank(projectName)) {
+			throw new IllegalArgumentException("Need to provide the name of the Protex Project to find.");
+		}
 		try {
-			final Project proj = serverProxy.getProjectApi().getProjectByName(projectName);
-			if (proj != null) {
-				logger.info("The project '" + projectName + "' exists.");
-				return true;
-			} else {
-				return false;
-			}
+			return serverProxy.getProjectApi().getProjectByName(projectName);
 		} catch (final SdkFault e) {
-			if (e.getFaultInfo() != null && e.getFaultInfo().getErrorCode() != null) {
-				if (e.getFaultInfo().getErrorCode().equals(ErrorCode.INVALID_CREDENTIALS)) {
-					throw new ProtexFacadeException(
-							"Error checking the project '" + projectName + "' :" + e.getMessage(), e);
-				}
-				if (e.getFaultInfo().getErrorCode().equals(ErrorCode.PROJECT_NOT_FOUND)) {
-					logger.info("The project '" + projectName + "' does not exist.");
-					return false;
-				}
-				throw new ProtexFacadeException("Error checking the project '" + projectName + "' : " + e.getMessage(),
-						e);
-			} else {
+			final ErrorCode errorCode = getErrorCode(e);
+			if (errorCode == ErrorCode.PROJECT_NOT_FOUND) {
+				return null;
+			}
+			if (errorCode == null) {
 				logger.error(e.getMessage(), e);
-				throw new ProtexFacadeException("Error checking the project '" + projectName + "' : " + e.getMessage(),
-						e);
 			}
+			throw translateFault("Error checking the project '" + projectName + "' : " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Lists the Ids of all the projects the user has access to.
+	 *
+	 * @throws ServerConfigException
+	 * @throws ProtexFacadeException
+	 * @throws ServerConnectionException
+	 */
+	public List<String> getProjectIds() throws ServerConfigException, ServerConnectionException, ProtexFacadeException {
+		try {
+			final List<ProjectInfo> projects = serverProxy.getProjectApi().getProjectsByUser(username);
+			final List<String> projectIds = new ArrayList<String>();
+			if (projects != null) {
+				for (final ProjectInfo project : projects) {
+					projectIds.add(project.getProjectId());
+				}
+			}
+			return projectIds;
+		} catch (final SdkFault e) {
+			throw translateFault("Error listing the projects of the user '" + username + "' : " + e.getMessage(), e);
 		}
 	}
 
@@ -223,23 +306,7 @@ public class ProtexFacade implements Serializable {
 			}
 
 			if (StringUtils.isBlank(cloneProjectName)) {
-
-				final ProjectRequest p = new ProjectRequest();
-				p.setName(projectName);
-				p.setDescription("Project Created by Protex-CI-Plugin");
-
-				String projectId = null;
-
-				projectId = serverProxy.getProjectApi().createProject(p, LicenseCategory.PROPRIETARY);
-
-				// Check for valid return
-				if (projectId == null) {
-					throw new ProtexFacadeException(
-							"Error while creating project " + projectName + ", No project ID created");
-				} else {
-					logger.info("The project '" + projectName + "' has been created.");
-					return projectId;
-				}
+				return createProject(projectName);
 			} else {
 
 				return cloneProtexProject(projectName, cloneProjectName);
@@ -248,11 +315,11 @@ public class ProtexFacade implements Serializable {
 		} catch (final SdkFault e) {
 			if (e.getFaultInfo() != null && e.getFaultInfo().getErrorCode() != null) {
 				logger.error(e.getFaultInfo().getErrorCode().toString(), e);
-				throw new ProtexFacadeException(
+				throw translateFault(
 						"Error while creating project : " + e.getFaultInfo().getErrorCode().toString(), e);
 			} else {
 				logger.error(e.getMessage(), e);
-				throw new ProtexFacadeException("Error while creating project : " + e.getMessage(), e);
+				throw translateFault("Error while creating project : " + e.getMessage(), e);
 			}
 		} catch (final ServerConnectionException e) {
 			throw e;
@@ -275,7 +342,6 @@ public class ProtexFacade implements Serializable {
 		try {
 
 			Project project = null;
-			String clonedProjectId = null;
 			try {
 				// PlaceHolder for SDK Calls
 
@@ -289,41 +355,171 @@ public class ProtexFacade implements Serializable {
 			} catch (final SdkFault e) {
 				if (e.getFaultInfo() != null && e.getFaultInfo().getErrorCode() != null) {
 					logger.error(e.getFaultInfo().getErrorCode().toString(), e);
-					throw new ProtexFacadeException(
+					throw translateFault(
 							"Error cloning the specified project : " + e.getFaultInfo().getErrorCode().toString(), e);
 				} else {
 					logger.error(e.getMessage(), e);
-					throw new ProtexFacadeException("Error cloning the specified project : " + e.getMessage(), e);
+					throw translateFault("Error cloning the specified project : " + e.getMessage(), e);
 				}
 			}
 
-			final List<ObligationCategory> resetAllFulfillments = new ArrayList<ObligationCategory>(0);
-			final List<CloneOption> analysisAndWork = new ArrayList<CloneOption>();
-			// Will have same users assigned and all same settings, included
-			// analysis results
-			analysisAndWork.add(CloneOption.ANALYSIS_RESULTS);
-			analysisAndWork.add(CloneOption.COMPLETED_WORK);
-			analysisAndWork.add(CloneOption.ASSIGNED_USERS);
-
-			clonedProjectId = serverProxy.getProjectApi().cloneProject(project.getProjectId(), projectName,
-					analysisAndWork, resetAllFulfillments);
-			logger.info("The project '" + projectName + "' has been cloned from '" + cloneProjectName + "'.");
-			return clonedProjectId;
+			return cloneProject(projectName, project);
 
 		} catch (final SdkFault e) {
 			if (e.getFaultInfo() != null && e.getFaultInfo().getErrorCode() != null) {
 				logger.error(e.getFaultInfo().getErrorCode().toString(), e);
-				throw new ProtexFacadeException(
+				throw translateFault(
 						"Error cloning the specified project : " + e.getFaultInfo().getErrorCode().toString(), e);
 			} else {
 				logger.error(e.getMessage(), e);
-				throw new ProtexFacadeException("Error cloning the specified project : " + e.getMessage(), e);
+				throw translateFault("Error cloning the specified project : " + e.getMessage(), e);
 			}
 		} catch (final ServerConnectionException e) {
 			throw e;
 		}
 	}
 
+	/**
+	 * Returns the Id of the project, creating it (or cloning it from cloneProjectName when one is given) if it does
+	 * not exist yet. An existing project costs one lookup, a new project one lookup plus the create or clone.
+	 *
+	 * Concurrent calls for the same name and clone source on this facade share a single lookup and create. Calls with
+	 * a different clone source run on their own. If another client, or a call with a different clone source, creates
+	 * the project first, the create fails and the Id of the existing project is returned instead.
+	 *
+	 * @throws ServerConfigException
+	 * @throws ProtexFacadeException
+	 * @throws ServerConnectionException
+	 */
+	public String ensureProject(final String projectName, final String cloneProjectName)
+			throws ProtexFacadeException, ServerConfigException, ServerConnectionException {
+		if (StringUtils.isBlank(projectName)) {
+			throw new IllegalArgumentException("Need to provide a name for the Protex Project to be ensured.");
+		}
+		if (projectName.length() >= 250) {
+			throw new ProtexFacadeException(PROJECT_NAME_TOO_LONG);
+		}
+
+		final ConcurrentMap<String, FutureTask<String>> inFlight = getPendingProjects();
+		final FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+			@Override
+			public String call() throws ProtexFacadeException, ServerConfigException, ServerConnectionException {
+				return resolveOrCreateProject(projectName, cloneProjectName);
+			}
+		});
+		final String key = projectName + '\u0000' + StringUtils.defaultString(cloneProjectName);
+		FutureTask<String> pending = inFlight.putIfAbsent(key, task);
+		if (pending == null) {
+			pending = task;
+			try {
+				task.run();
+			} finally {
+				inFlight.remove(key, task);
+			}
+		}
+
+		try {
+			return pending.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ProtexFacadeException("Interrupted while waiting for the project '" + projectName + "'.", e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof ProtexFacadeException) {
+				throw (ProtexFacadeException) cause;
+			} else if (cause instanceof ServerConfigException) {
+				throw (ServerConfigException) cause;
+			} else if (cause instanceof ServerConnectionException) {
+				throw (ServerConnectionException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ProtexFacadeException("Error while ensuring the project '" + projectName + "' : "
+					+ cause.getMessage(), cause);
+		}
+	}
+
+	private String resolveOrCreateProject(final String projectName, final String cloneProjectName)
+			throws ProtexFacadeException, ServerConfigException, ServerConnectionException {
+		final Project existing = findProject(projectName);
+		if (existing != null) {
+			logger.info("The project '" + projectName + "' exists with Id: " + existing.getProjectId());
+			return existing.getProjectId();
+		}
+
+		Project cloneSource = null;
+		if (StringUtils.isNotBlank(cloneProjectName)) {
+			cloneSource = findProject(cloneProjectName);
+			if (cloneSource == null) {
+				throw new ProtexFacadeException(
+						"Error cloning the specified project : The project '" + cloneProjectName + "' does not exist.");
+			}
+		}
+
+		try {
+			if (cloneSource == null) {
+				return createProject(projectName);
+			}
+			return cloneProject(projectName, cloneSource);
+		} catch (final SdkFault e) {
+			// Another client may have created the project since we looked it up
+			final Project created = findProject(projectName);
+			if (created != null) {
+				logger.info("The project '" + projectName + "' was created by another client with Id: "
+						+ created.getProjectId());
+				return created.getProjectId();
+			}
+			logger.error(e.getMessage(), e);
+			throw translateFault("Error while creating project : " + e.getMessage(), e);
+		}
+	}
+
+	private synchronized ConcurrentMap<String, FutureTask<String>> getPendingProjects() {
+		if (pendingProjects == null) {
+			pendingProjects = new ConcurrentHashMap<String, FutureTask<String>>();
+		}
+		return pendingProjects;
+	}
+
+	private String createProject(final String projectName)
+			throws ProtexFacadeException, ServerConfigException, ServerConnectionException, SdkFault {
+		final ProjectRequest p = new ProjectRequest();
+		p.setName(projectName);
+		p.setDescription("Project Created by Protex-CI-Plugin");
+
+		final String projectId = serverProxy.getProjectApi().createProject(p, LicenseCategory.PROPRIETARY);
+
+		// Check for valid return
+		if (projectId == null) {
+			throw new ProtexFacadeException("Error while creating project " + projectName + ", No project ID created");
+		}
+		logger.info("The project '" + projectName + "' has been created.");
+		return projectId;
+	}
+
+	private String cloneProject(final String projectName, final Project cloneProject)
+			throws ProtexFacadeException, ServerConfigException, ServerConnectionException, SdkFault {
+		final List<ObligationCategory> resetAllFulfillments = new ArrayList<ObligationCategory>(0);
+		final List<CloneOption> analysisAndWork = new ArrayList<CloneOption>();
+		// Will have same users assigned and all same settings, included
+		// analysis results
+		analysisAndWork.add(CloneOption.ANALYSIS_RESULTS);
+		analysisAndWork.add(CloneOption.COMPLETED_WORK);
+		analysisAndWork.add(CloneOption.ASSIGNED_USERS);
+
+		final String clonedProjectId = serverProxy.getProjectApi().cloneProject(cloneProject.getProjectId(),
+				projectName, analysisAndWork, resetAllFulfillments);
+
+		// Check for valid return
+		if (clonedProjectId == null) {
+			throw new ProtexFacadeException("Error while cloning project " + projectName + ", No project ID created");
+		}
+		logger.info("The project '" + projectName + "' has been cloned from '" + cloneProject.getName() + "'.");
+		return clonedProjectId;
+	}
+
 	public String getProtexProjectId(final String projectName)
 			throws ServerConfigException, ProtexFacadeException, ServerConnectionException {
 		if (StringUtils.isBlank(projectName)) {
@@ -341,19 +537,18 @@ public class ProtexFacade implements Serializable {
 		} catch (final SdkFault e) {
 			if (e.getFaultInfo() != null && e.getFaultInfo().getErrorCode() != null) {
 				if (e.getFaultInfo().getErrorCode().equals(ErrorCode.INVALID_CREDENTIALS)) {
-					throw new ProtexFacadeException("Server credentials were invalid :" + e.getMessage()
+					throw translateFault("Server credentials were invalid :" + e.getMessage()
 					+ ", errorCode : " + e.getFaultInfo().getErrorCode(), e);
 				}
 				if (e.getFaultInfo().getErrorCode().equals(ErrorCode.PROJECT_NOT_FOUND)) {
-					throw new ProtexFacadeException("Could not find the project '" + projectName + "' : "
+					throw translateFault("Could not find the project '" + projectName + "' : "
 							+ e.getMessage() + ", errorCode : " + e.getFaultInfo().getErrorCode(), e);
 				}
-				throw new ProtexFacadeException("Error checking the project '" + projectName + "' : " + e.getMessage()
+				throw translateFault("Error checking the project '" + projectName + "' : " + e.getMessage()
 				+ ", errorCode : " + e.getFaultInfo().getErrorCode(), e);
 			} else {
 				logger.error(e.getMessage(), e);
-				throw new ProtexFacadeException("Error checking the project '" + projectName + "' : " + e.getMessage(),
-						e);
+				throw translateFault("Error checking the project '" + projectName + "' : " + e.getMessage(), e);
 			}
 		} catch (final ServerConnectionException e) {
 			throw e;
@@ -408,8 +603,7 @@ public class ProtexFacade implements Serializable {
 			}
 
 		} catch (final SdkFault e) {
-			throw new ProtexFacadeException(
-					"Updating the Project's analysis source location failed : " + e.getMessage(), e);
+			throw translateFault("Updating the Project's analysis source location failed : " + e.getMessage(), e);
 		} catch (final ServerConnectionException e) {
 			throw e;
 		}
@@ -424,6 +618,22 @@ public class ProtexFacade implements Serializable {
 	 */
 	protected List<CodeTreeNode> getCodeTreeNodes(final String projectId, final NodeCountType countType)
 			throws ProtexFacadeException, ServerConfigException, ServerConnectionException {
+		return getCodeTreeNodes(projectId, countType, null);
+	}
+
+	/**
+	 * Get the code tree of the specified project, using the code tree snapshot store when one is set and the time of
+	 * the project's last analysis is known. The node counts of a tree read from the store are the ones from when the
+	 * snapshot was taken.
+	 *
+	 * @param analysisTimestamp
+	 *            the time of the project's last analysis, or null to always fetch the tree from the server
+	 * @throws ServerConfigException
+	 * @throws ProtexFacadeException
+	 * @throws ServerConnectionException
+	 */
+	protected List<CodeTreeNode> getCodeTreeNodes(final String projectId, final NodeCountType countType,
+			final Long analysisTimestamp) throws ProtexFacadeException, ServerConfigException, ServerConnectionException {
 
 		if (StringUtils.isBlank(projectId)) {
 			throw new IllegalArgumentException(
@@ -435,12 +645,38 @@ public class ProtexFacade implements Serializable {
 					"Need to provide the NodeCountType so you get the correct node count back.");
 		}
 
+		final CodeTreeSnapshotStore snapshotStore = analysisTimestamp == null ? null : codeTreeSnapshotStore;
+		if (snapshotStore != null) {
+			try {
+				final List<CodeTreeNode> snapshot = snapshotStore.get(projectId, countType, analysisTimestamp);
+				if (snapshot != null) {
+					return snapshot;
+				}
+			} catch (final IOException e) {
+				logger.error("Reading the code tree snapshot failed : " + e.getMessage(), e);
+			}
+		}
+
+		final List<CodeTreeNode> codeTreeNodes = fetchCodeTreeNodes(projectId, Arrays.asList(countType));
+
+		if (snapshotStore != null) {
+			try {
+				snapshotStore.put(projectId, countType, analysisTimestamp, codeTreeNodes);
+			} catch (final IOException e) {
+				logger.error("Updating the code tree snapshot store failed : " + e.getMessage(), e);
+			}
+		}
+		return codeTreeNodes;
+	}
+
+	private List<CodeTreeNode> fetchCodeTreeNodes(final String projectId, final List<NodeCountType> countTypes)
+			throws ProtexFacadeException, ServerConfigException, ServerConnectionException {
 		List<CodeTreeNode> codeTreeNodes = null;
 
 		try {
 			final CodeTreeNodeRequest req = new CodeTreeNodeRequest();
 			req.getIncludedNodeTypes().addAll(Arrays.asList(CodeTreeNodeType.values()));
-			req.getCounts().add(countType);
+			req.getCounts().addAll(countTypes);
 			req.setDepth(CodeTreeUtilities.INFINITE_DEPTH);
 			req.setIncludeParentNode(true);
 
@@ -448,7 +684,7 @@ public class ProtexFacade implements Serializable {
 
 		} catch (final SdkFault e) {
 			e.printStackTrace();
-			throw new ProtexFacadeException("Getting project code tree nodes failed : " + e.getMessage(), e);
+			throw translateFault("Getting project code tree nodes failed : " + e.getMessage(), e);
 
 		} catch (final ServerConnectionException e) {
 			throw e;
@@ -460,6 +696,40 @@ public class ProtexFacade implements Serializable {
 		return codeTreeNodes;
 	}
 
+	/**
+	 * Get several node counts of the specified project with a single code tree request, e.g. the pending Id and
+	 * violation counts together instead of one tree fetch each.
+	 *
+	 * @return the count of every requested NodeCountType, 0 when the server did not return it
+	 * @throws ServerConfigException
+	 * @throws ProtexFacadeException
+	 * @throws ServerConnectionException
+	 */
+	public Map<NodeCountType, Long> getNodeCounts(final String projectId, final NodeCountType... countTypes)
+			throws ProtexFacadeException, ServerConfigException, ServerConnectionException {
+		if (StringUtils.isBlank(projectId)) {
+			throw new IllegalArgumentException(
+					"Need to provide the Id of the Protex Project that you want the node counts of.");
+		}
+		if (countTypes == null || countTypes.length == 0) {
+			throw new IllegalArgumentException("Need to provide the NodeCountTypes you want the counts of.");
+		}
+
+		final List<CodeTreeNode> nodes = fetchCodeTreeNodes(projectId, Arrays.asList(countTypes));
+		// Same as getPendingIds and getViolationCount, the counts are taken from the last node returned
+		Map<NodeCountType, Long> map = new HashMap<NodeCountType, Long>();
+		for (final CodeTreeNode node : nodes) {
+			map = CodeTreeUtilities.getNodeCountMap(node);
+		}
+
+		final Map<NodeCountType, Long> counts = new EnumMap<NodeCountType, Long>(NodeCountType.class);
+		for (final NodeCountType countType : countTypes) {
+			final Long count = map.get(countType);
+			counts.put(countType, count != null && count > 0 ? count : 0L);
+		}
+		return counts;
+	}
+
 	/**
 	 * Get the pending Id count of the specified project
 	 *
@@ -586,10 +856,10 @@ public class ProtexFacade implements Serializable {
 		} catch (final SdkFault e) {
 			if (e.getFaultInfo() != null && e.getFaultInfo().getErrorCode() != null
 					&& e.getFaultInfo().getErrorCode() == ErrorCode.REPORT_TEMPLATE_NOT_FOUND) {
-				throw new ProtexFacadeException("Could not find the Report Template : " + reportTemplate);
+				throw translateFault("Could not find the Report Template : " + reportTemplate, e);
 			}
 
-			throw new ProtexFacadeException("Getting the Report Template failed : " + e.getMessage(), e);
+			throw translateFault("Getting the Report Template failed : " + e.getMessage(), e);
 		} catch (final ServerConnectionException e) {
 			throw e;
 		}
@@ -622,7 +892,7 @@ public class ProtexFacade implements Serializable {
 					tableOfContents);
 
 		} catch (final SdkFault e) {
-			throw new ProtexFacadeException("Creating the Protex report failed : " + e.getMessage(), e);
+			throw translateFault("Creating the Protex report failed : " + e.getMessage(), e);
 		} catch (final ServerConnectionException e) {
 			throw e;
 		}
@@ -632,9 +902,25 @@ public class ProtexFacade implements Serializable {
 		try {
 			return serverProxy.getPolicyApi().getSystemInformation().getBdsClientVersion();
 		} catch (final SdkFault e) {
-			throw new ProtexFacadeException("Getting the Protex server version failed : " + e.getMessage(), e);
+			throw translateFault("Getting the Protex server version failed : " + e.getMessage(), e);
 		} catch (final ServerConnectionException e) {
 			throw e;
 		}
 	}
+
+	/**
+	 * Wraps the SdkFault in a ProtexFacadeException. Expected faults skip the stack trace capture when lightweight
+	 * fault translation is enabled.
+	 */
+	protected ProtexFacadeException translateFault(final String message, final SdkFault fault) {
+		final boolean expected = lightweightFaultTranslation && EXPECTED_FAULT_CODES.contains(getErrorCode(fault));
+		return new ProtexFacadeException(message, fault, !expected);
+	}
+
+	private ErrorCode getErrorCode(final SdkFault fault) {
+		if (fault.getFaultInfo() == null) {
+			return null;
+		}
+		return fault.getFaultInfo().getErrorCode();
+	}
 }
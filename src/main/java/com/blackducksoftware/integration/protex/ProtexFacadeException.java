@@ -24,6 +24,7 @@
 package com.blackducksoftware.integration.protex;
 
 import com.blackducksoftware.sdk.fault.ErrorCode;
+import com.blackducksoftware.sdk.fault.ErrorDetails;
 import com.blackducksoftware.sdk.fault.SdkFault;
 
 public class ProtexFacadeException extends Exception {
@@ -49,20 +50,32 @@ public class ProtexFacadeException extends Exception {
     public ProtexFacadeException(Throwable cause)
     {
         super(cause);
-        if (cause instanceof SdkFault) {
-            SdkFault fault = (SdkFault) cause;
-            sdkFaultErrorCode = fault.getFaultInfo().getErrorCode();
-            sdkFaultMessage = fault.getFaultInfo().getMessage();
-        }
+        readSdkFault(cause);
     }
 
     public ProtexFacadeException(String message, Throwable cause)
     {
         super(message, cause);
+        readSdkFault(cause);
+    }
+
+    /**
+     * Creates the exception without capturing a stack trace when writableStackTrace is false. Meant for expected
+     * faults (e.g. PROJECT_NOT_FOUND) where the cause already carries the useful trace.
+     */
+    public ProtexFacadeException(String message, Throwable cause, boolean writableStackTrace)
+    {
+        super(message, cause, true, writableStackTrace);
+        readSdkFault(cause);
+    }
+
+    private void readSdkFault(Throwable cause) {
         if (cause instanceof SdkFault) {
-            SdkFault fault = (SdkFault) cause;
-            sdkFaultErrorCode = fault.getFaultInfo().getErrorCode();
-            sdkFaultMessage = fault.getFaultInfo().getMessage();
+            ErrorDetails faultInfo = ((SdkFault) cause).getFaultInfo();
+            if (faultInfo != null) {
+                sdkFaultErrorCode = faultInfo.getErrorCode();
+                sdkFaultMessage = faultInfo.getMessage();
+            }
         }
     }
 
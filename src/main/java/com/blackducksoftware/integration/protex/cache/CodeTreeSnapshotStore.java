@@ -0,0 +1,403 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.blackducksoftware.sdk.protex.project.codetree.CodeTreeNode;
+import com.blackducksoftware.sdk.protex.project.codetree.CodeTreeNodeType;
+import com.blackducksoftware.sdk.protex.project.codetree.NodeCount;
+import com.blackducksoftware.sdk.protex.project.codetree.NodeCountType;
+
+/**
+ * Local store of code tree snapshots, keyed by project Id, NodeCountType and the time of the last analysis. A project
+ * tree only changes after a scan, so a snapshot for the same analysis time can be answered from disk. The node counts
+ * are stored as they were when the snapshot was taken.
+ *
+ * Snapshots are written in a compact binary format and read back in one read of the file channel. The file is closed
+ * before the nodes are returned, so nothing keeps it open and it can be replaced or deleted right away, on Windows
+ * too. Once the store grows past its size limit the least recently used snapshots are evicted.
+ */
+public class CodeTreeSnapshotStore implements Serializable {
+	private static final long serialVersionUID = 2484133360516573208L;
+
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024L * 1024L;
+
+	private static final int MAGIC = 0x50435453;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+	/**
+	 * The smallest a node can be on disk: the name length, the node type length and the number of counts.
+	 */
+	private static final int MIN_NODE_BYTES = 12;
+
+	/**
+	 * The smallest a count can be on disk: the count type length and the count.
+	 */
+	private static final int MIN_COUNT_BYTES = 12;
+
+	private static final int MAX_INITIAL_CAPACITY = 4096;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File directory;
+
+	private final long maxBytes;
+
+	public CodeTreeSnapshotStore(final File directory) {
+		this(directory, DEFAULT_MAX_BYTES);
+	}
+
+	public CodeTreeSnapshotStore(final File directory, final long maxBytes) {
+		if (directory == null) {
+			throw new IllegalArgumentException("Need to provide the directory to store the code tree snapshots in.");
+		}
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("The maximum size of the snapshot store must be greater than 0.");
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Reads the snapshot for the given key.
+	 *
+	 * @return the code tree nodes, or null if there is no readable snapshot for this analysis time
+	 * @throws IOException
+	 *             if the snapshot can not be read, or is unreadable and can not be deleted
+	 */
+	public List<CodeTreeNode> get(final String projectId, final NodeCountType countType, final long analysisTimestamp)
+			throws IOException {
+		final File snapshot = getSnapshotFile(projectId, countType, analysisTimestamp);
+		List<CodeTreeNode> nodes;
+		try {
+			nodes = readSnapshot(snapshot);
+			if (nodes == null) {
+				// A put may have replaced the file since it was read, so read it again while no put can run and
+				// only drop it if it is still unreadable
+				synchronized (this) {
+					nodes = readSnapshot(snapshot);
+					if (nodes == null) {
+						// Unreadable or from an older format, drop it so it gets refreshed
+						if (!snapshot.delete() && snapshot.exists()) {
+							throw new IOException("Could not delete the unreadable code tree snapshot : "
+									+ snapshot.getAbsolutePath());
+						}
+						return null;
+					}
+				}
+			}
+		} catch (final FileNotFoundException e) {
+			// Never stored, or evicted or replaced since
+			return null;
+		}
+		// The modification time is used as the access time for the LRU eviction
+		snapshot.setLastModified(System.currentTimeMillis());
+		return nodes;
+	}
+
+	/**
+	 * @return the nodes, or null if the snapshot is unreadable
+	 * @throws FileNotFoundException
+	 *             if there is no snapshot
+	 */
+	private List<CodeTreeNode> readSnapshot(final File snapshot) throws IOException {
+		final FileInputStream in = new FileInputStream(snapshot);
+		try {
+			final FileChannel channel = in.getChannel();
+			final long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return null;
+			}
+			final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// Keep reading until the buffer is full or the file ends
+			}
+			buffer.flip();
+			return readNodes(buffer);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the snapshot for the given key, replacing any older snapshots of the same project and NodeCountType,
+	 * then evicts the least recently used snapshots if the store is over its size limit.
+	 *
+	 * @throws IOException
+	 *             if the snapshot can not be written, or an older or evicted snapshot can not be deleted
+	 */
+	public synchronized void put(final String projectId, final NodeCountType countType, final long analysisTimestamp,
+			final List<CodeTreeNode> nodes) throws IOException {
+		if (nodes == null) {
+			throw new IllegalArgumentException("Need to provide the code tree nodes to store.");
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create the code tree snapshot directory : " + directory.getAbsolutePath());
+		}
+		final File snapshot = getSnapshotFile(projectId, countType, analysisTimestamp);
+		final File temp = File.createTempFile(snapshot.getName(), ".tmp", directory);
+		try {
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				writeNodes(out, nodes);
+			} finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			if (temp.exists()) {
+				temp.delete();
+			}
+		}
+
+		final List<File> undeleted = new ArrayList<File>();
+		final String keyPrefix = getKeyPrefix(projectId, countType);
+		for (final File existing : listSnapshots()) {
+			final String name = existing.getName();
+			if (name.substring(0, name.lastIndexOf('_') + 1).equals(keyPrefix) && !existing.equals(snapshot)) {
+				delete(existing, undeleted);
+			}
+		}
+		evict(undeleted);
+		checkDeleted(undeleted);
+	}
+
+	/**
+	 * Removes every snapshot of the project.
+	 *
+	 * @throws IOException
+	 *             if a snapshot can not be deleted
+	 */
+	public synchronized void invalidate(final String projectId) throws IOException {
+		if (StringUtils.isBlank(projectId)) {
+			throw new IllegalArgumentException("Need to provide the Id of the Protex Project to invalidate.");
+		}
+		final List<File> undeleted = new ArrayList<File>();
+		final String projectPrefix = encode(projectId) + "_";
+		for (final File existing : listSnapshots()) {
+			if (existing.getName().startsWith(projectPrefix)) {
+				delete(existing, undeleted);
+			}
+		}
+		checkDeleted(undeleted);
+	}
+
+	private void delete(final File snapshot, final List<File> undeleted) {
+		if (!snapshot.delete() && snapshot.exists()) {
+			undeleted.add(snapshot);
+		}
+	}
+
+	private void checkDeleted(final List<File> undeleted) throws IOException {
+		if (!undeleted.isEmpty()) {
+			throw new IOException("Could not delete the code tree snapshot(s) : " + undeleted);
+		}
+	}
+
+	private void evict(final List<File> undeleted) {
+		final File[] snapshots = listSnapshots();
+		long totalBytes = 0L;
+		for (final File snapshot : snapshots) {
+			totalBytes += snapshot.length();
+		}
+		if (totalBytes <= maxBytes) {
+			return;
+		}
+		Arrays.sort(snapshots, new Comparator<File>() {
+			@Override
+			public int compare(final File first, final File second) {
+				final long firstModified = first.lastModified();
+				final long secondModified = second.lastModified();
+				return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+			}
+		});
+		for (final File snapshot : snapshots) {
+			if (totalBytes <= maxBytes) {
+				break;
+			}
+			final long length = snapshot.length();
+			if (snapshot.delete() || !snapshot.exists()) {
+				totalBytes -= length;
+			} else {
+				undeleted.add(snapshot);
+			}
+		}
+	}
+
+	private File[] listSnapshots() {
+		final File[] snapshots = directory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(final File file) {
+				return file.isFile() && file.getName().endsWith(SNAPSHOT_EXTENSION);
+			}
+		});
+		if (snapshots == null) {
+			return new File[0];
+		}
+		return snapshots;
+	}
+
+	private File getSnapshotFile(final String projectId, final NodeCountType countType, final long analysisTimestamp) {
+		return new File(directory, getKeyPrefix(projectId, countType) + analysisTimestamp + SNAPSHOT_EXTENSION);
+	}
+
+	private String getKeyPrefix(final String projectId, final NodeCountType countType) {
+		if (StringUtils.isBlank(projectId)) {
+			throw new IllegalArgumentException("Need to provide the Id of the Protex Project for the snapshot.");
+		}
+		if (countType == null) {
+			throw new IllegalArgumentException("Need to provide the NodeCountType for the snapshot.");
+		}
+		return encode(projectId) + "_" + countType.name() + "_";
+	}
+
+	/**
+	 * Keeps the project Id safe to use in a file name. Characters outside [A-Za-z0-9-] are written as '.' followed by
+	 * their 4 digit hex code, so the encoding is unambiguous and '_' can be used as the separator in the file name.
+	 */
+	private String encode(final String projectId) {
+		final StringBuilder encoded = new StringBuilder(projectId.length());
+		for (final char c : projectId.toCharArray()) {
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-') {
+				encoded.append(c);
+			} else {
+				encoded.append(String.format(".%04x", (int) c));
+			}
+		}
+		return encoded.toString();
+	}
+
+	private void writeNodes(final DataOutputStream out, final List<CodeTreeNode> nodes) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(nodes.size());
+		for (final CodeTreeNode node : nodes) {
+			writeString(out, node.getName());
+			writeString(out, node.getNodeType() == null ? null : node.getNodeType().name());
+			out.writeInt(node.getNodeCounts().size());
+			for (final NodeCount nodeCount : node.getNodeCounts()) {
+				writeString(out, nodeCount.getCountType() == null ? null : nodeCount.getCountType().name());
+				final Long count = nodeCount.getCount();
+				out.writeLong(count == null ? 0L : count);
+			}
+		}
+	}
+
+	private List<CodeTreeNode> readNodes(final ByteBuffer buffer) {
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				return null;
+			}
+			final int nodeTotal = buffer.getInt();
+			if (nodeTotal < 0 || nodeTotal > buffer.remaining() / MIN_NODE_BYTES) {
+				return null;
+			}
+			final List<CodeTreeNode> nodes = new ArrayList<CodeTreeNode>(Math.min(nodeTotal, MAX_INITIAL_CAPACITY));
+			for (int i = 0; i < nodeTotal; i++) {
+				final CodeTreeNode node = new CodeTreeNode();
+				node.setName(readString(buffer));
+				final String nodeType = readString(buffer);
+				if (nodeType != null) {
+					node.setNodeType(CodeTreeNodeType.valueOf(nodeType));
+				}
+				final int countTotal = buffer.getInt();
+				if (countTotal < 0 || countTotal > buffer.remaining() / MIN_COUNT_BYTES) {
+					return null;
+				}
+				for (int j = 0; j < countTotal; j++) {
+					final NodeCount nodeCount = new NodeCount();
+					final String countType = readString(buffer);
+					if (countType != null) {
+						nodeCount.setCountType(NodeCountType.valueOf(countType));
+					}
+					nodeCount.setCount(buffer.getLong());
+					node.getNodeCounts().add(nodeCount);
+				}
+				nodes.add(node);
+			}
+			return nodes;
+		} catch (final BufferUnderflowException e) {
+			return null;
+		} catch (final IllegalArgumentException e) {
+			// Truncated string or an enum constant this SDK version does not know
+			return null;
+		}
+	}
+
+	private void writeString(final DataOutputStream out, final String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		final byte[] bytes = value.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private String readString(final ByteBuffer buffer) {
+		final int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		if (length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+}
@@ -0,0 +1,395 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex.export;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.ProtexFacadeException;
+import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConfigException;
+import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConnectionException;
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+import com.blackducksoftware.sdk.protex.project.codetree.NodeCountType;
+
+/**
+ * Exports the pending Id and violation counts of a list of projects. Both counts of a project come from a single code
+ * tree fetch. Projects are fetched concurrently, with at most a fixed number in flight, and each row is written to
+ * the output as soon as it is available.
+ *
+ * Every exported project Id is appended to a checkpoint file. If the export is interrupted, running it again with the
+ * same output and checkpoint file skips the projects that were already exported and appends the rest. The rows in the
+ * output decide which projects were exported: the checkpoint is rewritten from them on resume, so a row that was
+ * written just before the export stopped is not exported a second time.
+ */
+public class PortfolioMetricsExporter {
+	public static final int DEFAULT_THREAD_COUNT = 8;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String CSV_HEADER = "projectId,pendingIds,violationCount";
+
+	private final ProtexFacade facade;
+
+	private final IntLogger logger;
+
+	private final PortfolioExportFormat format;
+
+	private final int threadCount;
+
+	public PortfolioMetricsExporter(final ProtexFacade facade, final IntLogger logger,
+			final PortfolioExportFormat format) {
+		this(facade, logger, format, DEFAULT_THREAD_COUNT);
+	}
+
+	public PortfolioMetricsExporter(final ProtexFacade facade, final IntLogger logger,
+			final PortfolioExportFormat format, final int threadCount) {
+		if (facade == null) {
+			throw new IllegalArgumentException("Need to provide the ProtexFacade to export the metrics with.");
+		}
+		if (logger == null) {
+			throw new IllegalArgumentException("Need to provide a logger for the export.");
+		}
+		if (format == null) {
+			throw new IllegalArgumentException("Need to specify the format you would like the export to be.");
+		}
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("The export needs at least 1 thread.");
+		}
+		this.facade = facade;
+		this.logger = logger;
+		this.format = format;
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Exports the metrics of all the projects the user has access to.
+	 *
+	 * @see #export(List, File, File)
+	 */
+	public int export(final File output, final File checkpoint) throws IOException, InterruptedException,
+	ServerConfigException, ServerConnectionException, ProtexFacadeException {
+		return export(facade.getProjectIds(), output, checkpoint);
+	}
+
+	/**
+	 * Exports the metrics of the projects to the output file, resuming from the checkpoint file if it exists.
+	 *
+	 * @return the number of projects that could not be exported. They are not checkpointed, so they are retried on
+	 *         the next run.
+	 * @throws IllegalArgumentException
+	 *             if the export is resumed into an output file that is not in the requested format
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public int export(final List<String> projectIds, final File output, final File checkpoint)
+			throws IOException, InterruptedException {
+		if (projectIds == null) {
+			throw new IllegalArgumentException("Need to provide the Ids of the Protex Projects to export.");
+		}
+		if (output == null) {
+			throw new IllegalArgumentException("Need to provide the file to export the metrics to.");
+		}
+		if (checkpoint == null) {
+			throw new IllegalArgumentException("Need to provide the checkpoint file for the export.");
+		}
+
+		// Without both files there is nothing to resume, so start the export over
+		final Set<String> completed = new LinkedHashSet<String>();
+		final boolean resuming = checkpoint.isFile() && output.isFile() && readExportedRows(output, completed) > 0;
+		if (resuming) {
+			logger.info("Resuming the portfolio export, " + completed.size() + " project(s) were already exported.");
+		}
+
+		final Writer rows = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output, resuming), UTF_8));
+		final Writer checkpointWriter;
+		try {
+			checkpointWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(checkpoint), UTF_8));
+		} catch (final IOException e) {
+			rows.close();
+			throw e;
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			if (!resuming && format == PortfolioExportFormat.CSV) {
+				rows.write(CSV_HEADER);
+				rows.write('\n');
+			}
+			for (final String projectId : completed) {
+				checkpointWriter.write(projectId);
+				checkpointWriter.write('\n');
+			}
+			checkpointWriter.flush();
+
+			final CompletionService<ProjectMetrics> completionService = new ExecutorCompletionService<ProjectMetrics>(
+					executor);
+			// Keep the queue bounded so a large portfolio does not pile up finished rows in memory
+			final int maxInFlight = threadCount * 2;
+			final Iterator<String> remaining = projectIds.iterator();
+			int inFlight = 0;
+			int exported = 0;
+			int failed = 0;
+			while (true) {
+				while (inFlight < maxInFlight && remaining.hasNext()) {
+					final String projectId = remaining.next();
+					if (StringUtils.isBlank(projectId) || completed.contains(projectId)) {
+						continue;
+					}
+					completed.add(projectId);
+					completionService.submit(new MetricsTask(projectId));
+					inFlight++;
+				}
+				if (inFlight == 0) {
+					break;
+				}
+				final ProjectMetrics metrics;
+				try {
+					metrics = completionService.take().get();
+				} catch (final ExecutionException e) {
+					// MetricsTask reports its own failures, this would be a bug in the task itself
+					throw new IllegalStateException("Exporting the project metrics failed : " + e.getMessage(),
+							e.getCause());
+				} finally {
+					inFlight--;
+				}
+				if (metrics.failure != null) {
+					failed++;
+					logger.error("Exporting the metrics of the project '" + metrics.projectId + "' failed : "
+							+ metrics.failure.getMessage(), metrics.failure);
+					continue;
+				}
+				writeRow(rows, metrics);
+				rows.flush();
+				checkpointWriter.write(metrics.projectId);
+				checkpointWriter.write('\n');
+				checkpointWriter.flush();
+				exported++;
+			}
+			logger.info("Exported the metrics of " + exported + " project(s), " + failed + " project(s) failed.");
+			return failed;
+		} finally {
+			executor.shutdownNow();
+			try {
+				rows.close();
+			} finally {
+				checkpointWriter.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads the Ids of the projects that already have a row in the output, and cuts off a partial row left behind by
+	 * a run that stopped in the middle of writing it.
+	 *
+	 * @return the length of the complete rows, including the CSV header
+	 */
+	private long readExportedRows(final File output, final Set<String> exported) throws IOException {
+		long rowsLength = 0;
+		final InputStream in = new BufferedInputStream(new FileInputStream(output));
+		try {
+			final ByteArrayOutputStream row = new ByteArrayOutputStream();
+			long position = 0;
+			boolean quoted = false;
+			int b;
+			while ((b = in.read()) != -1) {
+				position++;
+				if (b == '\n' && !quoted) {
+					final String line = new String(row.toByteArray(), UTF_8);
+					if (rowsLength == 0 && format == PortfolioExportFormat.CSV) {
+						if (!CSV_HEADER.equals(line)) {
+							throw createFormatMismatch(output);
+						}
+					} else {
+						exported.add(parseProjectId(line, output));
+					}
+					rowsLength = position;
+					row.reset();
+					continue;
+				}
+				// A quoted CSV value can hold a line break, an escaped quote toggles twice
+				if (b == '"' && format == PortfolioExportFormat.CSV) {
+					quoted = !quoted;
+				}
+				row.write(b);
+			}
+		} finally {
+			in.close();
+		}
+
+		if (rowsLength < output.length()) {
+			final RandomAccessFile randomAccessFile = new RandomAccessFile(output, "rw");
+			try {
+				randomAccessFile.setLength(rowsLength);
+			} finally {
+				randomAccessFile.close();
+			}
+		}
+		return rowsLength;
+	}
+
+	private String parseProjectId(final String row, final File output) {
+		if (format == PortfolioExportFormat.CSV) {
+			// The two counts never need quoting, so the Id is everything before them
+			final int lastComma = row.lastIndexOf(',');
+			final int idEnd = lastComma > 0 ? row.lastIndexOf(',', lastComma - 1) : -1;
+			if (idEnd < 0) {
+				throw createFormatMismatch(output);
+			}
+			final String value = row.substring(0, idEnd);
+			if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+				return value.substring(1, value.length() - 1).replace("\"\"", "\"");
+			}
+			return value;
+		}
+
+		final String prefix = "{\"projectId\":\"";
+		if (!row.startsWith(prefix)) {
+			throw createFormatMismatch(output);
+		}
+		final StringBuilder projectId = new StringBuilder();
+		for (int i = prefix.length(); i < row.length(); i++) {
+			final char c = row.charAt(i);
+			if (c == '"') {
+				return projectId.toString();
+			}
+			if (c == '\\' && i + 1 < row.length()) {
+				final char escaped = row.charAt(++i);
+				if (escaped == 'u' && i + 4 < row.length()) {
+					projectId.append((char) Integer.parseInt(row.substring(i + 1, i + 5), 16));
+					i += 4;
+				} else {
+					projectId.append(escaped);
+				}
+			} else {
+				projectId.append(c);
+			}
+		}
+		throw createFormatMismatch(output);
+	}
+
+	private IllegalArgumentException createFormatMismatch(final File output) {
+		return new IllegalArgumentException("The output file '" + output.getAbsolutePath() + "' is not a " + format
+				+ " export, so the export can not be resumed into it.");
+	}
+
+	private void writeRow(final Writer rows, final ProjectMetrics metrics) throws IOException {
+		if (format == PortfolioExportFormat.CSV) {
+			rows.write(escapeCsv(metrics.projectId));
+			rows.write(',');
+			rows.write(String.valueOf(metrics.pendingIds));
+			rows.write(',');
+			rows.write(String.valueOf(metrics.violationCount));
+		} else {
+			rows.write("{\"projectId\":\"");
+			rows.write(escapeJson(metrics.projectId));
+			rows.write("\",\"pendingIds\":");
+			rows.write(String.valueOf(metrics.pendingIds));
+			rows.write(",\"violationCount\":");
+			rows.write(String.valueOf(metrics.violationCount));
+			rows.write('}');
+		}
+		rows.write('\n');
+	}
+
+	private String escapeCsv(final String value) {
+		if (StringUtils.containsAny(value, ',', '"', '\r', '\n')) {
+			return '"' + value.replace("\"", "\"\"") + '"';
+		}
+		return value;
+	}
+
+	private String escapeJson(final String value) {
+		final StringBuilder escaped = new StringBuilder(value.length());
+		for (final char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				escaped.append('\\').append(c);
+			} else if (c < 0x20) {
+				escaped.append(String.format("\\u%04x", (int) c));
+			} else {
+				escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+
+	private class MetricsTask implements Callable<ProjectMetrics> {
+		private final String projectId;
+
+		private MetricsTask(final String projectId) {
+			this.projectId = projectId;
+		}
+
+		@Override
+		public ProjectMetrics call() {
+			final ProjectMetrics metrics = new ProjectMetrics(projectId);
+			try {
+				// Both counts come from one code tree fetch
+				final Map<NodeCountType, Long> counts = facade.getNodeCounts(projectId, NodeCountType.PENDING_ID_ALL,
+						NodeCountType.VIOLATIONS);
+				metrics.pendingIds = counts.get(NodeCountType.PENDING_ID_ALL);
+				metrics.violationCount = counts.get(NodeCountType.VIOLATIONS);
+			} catch (final Exception e) {
+				metrics.failure = e;
+			}
+			return metrics;
+		}
+	}
+
+	private static class ProjectMetrics {
+		private final String projectId;
+
+		private long pendingIds;
+
+		private long violationCount;
+
+		private Exception failure;
+
+		private ProjectMetrics(final String projectId) {
+			this.projectId = projectId;
+		}
+	}
+}
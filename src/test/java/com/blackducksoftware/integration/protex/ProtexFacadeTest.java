@@ -0,0 +1,335 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackducksoftware.integration.protex.sdk.ProtexServerProxy;
+import com.blackducksoftware.sdk.fault.ErrorCode;
+import com.blackducksoftware.sdk.fault.ErrorDetails;
+import com.blackducksoftware.sdk.fault.SdkFault;
+import com.blackducksoftware.sdk.protex.project.Project;
+import com.blackducksoftware.sdk.protex.project.ProjectApi;
+import com.blackducksoftware.sdk.protex.project.ProjectRequest;
+
+public class ProtexFacadeTest {
+	private ProtexFacade facade;
+
+	private StubProjectApi stub;
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception {
+		stub = new StubProjectApi();
+		final ProjectApi projectApi = (ProjectApi) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ProjectApi.class }, stub);
+		facade = new ProtexFacade("http://localhost", "user", "password");
+		facade.serverProxy = new ProtexServerProxy("http://localhost", "user", "password", 1000L) {
+			@Override
+			public ProjectApi getProjectApi() {
+				return projectApi;
+			}
+		};
+		facade.setLogger(TestLogger.create());
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testFindProject() throws Exception {
+		stub.addProject("existing", "c_existing");
+
+		assertEquals("c_existing", facade.findProject("existing").getProjectId());
+		assertNull(facade.findProject("missing"));
+	}
+
+	@Test
+	public void testFindProjectThrowsOnOtherFaults() throws Exception {
+		stub.lookupFault = createFault(ErrorCode.INVALID_CREDENTIALS);
+		try {
+			facade.findProject("project");
+			fail("Expected a ProtexFacadeException");
+		} catch (final ProtexFacadeException e) {
+			assertEquals(ErrorCode.INVALID_CREDENTIALS, e.getSdkFaultErrorCode());
+		}
+
+		stub.lookupFault = new SdkFault("No fault info", null);
+		try {
+			facade.findProject("project");
+			fail("Expected a ProtexFacadeException");
+		} catch (final ProtexFacadeException e) {
+			assertNull(e.getSdkFaultErrorCode());
+			assertNull(e.getSdkFaultMessage());
+		}
+	}
+
+	@Test
+	public void testCheckProjectExists() throws Exception {
+		stub.addProject("existing", "c_existing");
+
+		assertTrue(facade.checkProjectExists("existing"));
+		assertFalse(facade.checkProjectExists("missing"));
+	}
+
+	@Test
+	public void testLightweightFaultTranslation() throws Exception {
+		final SdkFault notFound = createFault(ErrorCode.PROJECT_NOT_FOUND);
+		final SdkFault invalidCredentials = createFault(ErrorCode.INVALID_CREDENTIALS);
+
+		assertTrue(facade.translateFault("message", notFound).getStackTrace().length > 0);
+
+		facade.setLightweightFaultTranslation(true);
+		for (final ErrorCode errorCode : ProtexFacade.EXPECTED_FAULT_CODES) {
+			final ProtexFacadeException e = facade.translateFault("message", createFault(errorCode));
+			assertEquals(0, e.getStackTrace().length);
+			assertEquals(errorCode, e.getSdkFaultErrorCode());
+		}
+		final ProtexFacadeException unexpected = facade.translateFault("message", invalidCredentials);
+		assertTrue(unexpected.getStackTrace().length > 0);
+		assertSame(invalidCredentials, unexpected.getCause());
+	}
+
+	@Test
+	public void testExceptionWithoutFaultInfo() {
+		final SdkFault fault = new SdkFault("No fault info", null);
+
+		final ProtexFacadeException withMessage = new ProtexFacadeException("message", fault, false);
+		assertNull(withMessage.getSdkFaultErrorCode());
+		assertEquals(0, withMessage.getStackTrace().length);
+		assertSame(fault, withMessage.getCause());
+
+		assertNull(new ProtexFacadeException(fault).getSdkFaultErrorCode());
+		assertNull(new ProtexFacadeException("message", fault).getSdkFaultMessage());
+	}
+
+	@Test
+	public void testEnsureExistingProject() throws Exception {
+		stub.addProject("existing", "c_existing");
+
+		assertEquals("c_existing", facade.ensureProject("existing", "source"));
+		assertEquals(1, stub.lookups.get());
+		assertEquals(0, stub.creates.get());
+		assertEquals(0, stub.clones.get());
+	}
+
+	@Test
+	public void testEnsureCreatesMissingProject() throws Exception {
+		assertEquals("c_created_new", facade.ensureProject("new", null));
+		assertEquals(1, stub.lookups.get());
+		assertEquals(1, stub.creates.get());
+	}
+
+	@Test
+	public void testEnsureClonesMissingProject() throws Exception {
+		stub.addProject("source", "c_source");
+
+		assertEquals("c_cloned_new_from_c_source", facade.ensureProject("new", "source"));
+		assertEquals(2, stub.lookups.get());
+		assertEquals(0, stub.creates.get());
+		assertEquals(1, stub.clones.get());
+	}
+
+	@Test
+	public void testEnsureFailsWhenCloneReturnsNoId() throws Exception {
+		stub.addProject("source", "c_source");
+		stub.cloneReturnsNull = true;
+
+		try {
+			facade.ensureProject("new", "source");
+			fail("Expected a ProtexFacadeException");
+		} catch (final ProtexFacadeException e) {
+			assertTrue(e.getMessage().contains("No project ID created"));
+		}
+	}
+
+	@Test
+	public void testConcurrentEnsureSharesOneCreate() throws Exception {
+		stub.createEntered = new CountDownLatch(1);
+		stub.createRelease = new CountDownLatch(1);
+
+		final Future<String> first = executor.submit(ensure("shared", null));
+		assertTrue(stub.createEntered.await(10, TimeUnit.SECONDS));
+
+		final AtomicReference<Thread> waiter = new AtomicReference<Thread>();
+		final Future<String> second = executor.submit(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				waiter.set(Thread.currentThread());
+				return facade.ensureProject("shared", null);
+			}
+		});
+		// Release the create only once the second call is parked on the first call's task, any other wait does not
+		// count
+		final long deadline = System.currentTimeMillis() + 10000L;
+		while (waiter.get() == null || !(LockSupport.getBlocker(waiter.get()) instanceof FutureTask)) {
+			assertTrue("The second call never waited on the first", System.currentTimeMillis() < deadline);
+			Thread.sleep(10L);
+		}
+		stub.createRelease.countDown();
+
+		assertEquals("c_created_shared", first.get(10, TimeUnit.SECONDS));
+		assertEquals("c_created_shared", second.get(10, TimeUnit.SECONDS));
+		assertEquals(1, stub.lookups.get());
+		assertEquals(1, stub.creates.get());
+	}
+
+	@Test
+	public void testEnsureRecoversWhenAnotherClientWinsTheRace() throws Exception {
+		stub.otherClientWinsCreate = true;
+
+		assertEquals("c_other_client", facade.ensureProject("raced", null));
+		assertEquals(2, stub.lookups.get());
+		assertEquals(1, stub.creates.get());
+	}
+
+	@Test
+	public void testEnsureFailsWhenCreateFailsAndProjectIsStillMissing() throws Exception {
+		stub.createFails = true;
+
+		try {
+			facade.ensureProject("broken", null);
+			fail("Expected a ProtexFacadeException");
+		} catch (final ProtexFacadeException e) {
+			assertEquals(2, stub.lookups.get());
+		}
+	}
+
+	private Callable<String> ensure(final String projectName, final String cloneProjectName) {
+		return new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return facade.ensureProject(projectName, cloneProjectName);
+			}
+		};
+	}
+
+	private static class StubProjectApi implements InvocationHandler {
+		private final ConcurrentMap<String, Project> projects = new ConcurrentHashMap<String, Project>();
+
+		private final AtomicInteger lookups = new AtomicInteger();
+
+		private final AtomicInteger creates = new AtomicInteger();
+
+		private final AtomicInteger clones = new AtomicInteger();
+
+		private volatile CountDownLatch createEntered;
+
+		private volatile CountDownLatch createRelease;
+
+		private volatile boolean cloneReturnsNull;
+
+		private volatile boolean otherClientWinsCreate;
+
+		private volatile boolean createFails;
+
+		private volatile SdkFault lookupFault;
+
+		private void addProject(final String name, final String projectId) {
+			final Project project = new Project();
+			project.setName(name);
+			project.setProjectId(projectId);
+			projects.put(name, project);
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+			final String name = method.getName();
+			if ("getProjectByName".equals(name)) {
+				lookups.incrementAndGet();
+				if (lookupFault != null) {
+					throw lookupFault;
+				}
+				final Project project = projects.get(args[0]);
+				if (project == null) {
+					throw createFault(ErrorCode.PROJECT_NOT_FOUND);
+				}
+				return project;
+			} else if ("createProject".equals(name)) {
+				creates.incrementAndGet();
+				final String projectName = ((ProjectRequest) args[0]).getName();
+				if (createEntered != null) {
+					createEntered.countDown();
+					createRelease.await(10, TimeUnit.SECONDS);
+				}
+				if (otherClientWinsCreate) {
+					addProject(projectName, "c_other_client");
+					throw createFault(null);
+				}
+				if (createFails) {
+					throw createFault(null);
+				}
+				addProject(projectName, "c_created_" + projectName);
+				return "c_created_" + projectName;
+			} else if ("cloneProject".equals(name)) {
+				clones.incrementAndGet();
+				if (cloneReturnsNull) {
+					return null;
+				}
+				addProject((String) args[1], "c_cloned_" + args[1] + "_from_" + args[0]);
+				return "c_cloned_" + args[1] + "_from_" + args[0];
+			} else if (method.getDeclaringClass() == Object.class) {
+				return method.invoke(this, args);
+			}
+			throw new UnsupportedOperationException(name);
+		}
+
+	}
+
+	private static SdkFault createFault(final ErrorCode errorCode) {
+		final ErrorDetails faultInfo = new ErrorDetails();
+		faultInfo.setErrorCode(errorCode);
+		faultInfo.setMessage("Stubbed fault");
+		return new SdkFault("Stubbed fault", faultInfo);
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+import com.blackducksoftware.integration.suite.sdk.logging.LogLevel;
+
+/**
+ * IntLogger for tests that keeps the log level and drops every message.
+ */
+public class TestLogger implements InvocationHandler {
+	private LogLevel logLevel = LogLevel.OFF;
+
+	public static IntLogger create() {
+		return (IntLogger) Proxy.newProxyInstance(TestLogger.class.getClassLoader(), new Class<?>[] { IntLogger.class },
+				new TestLogger());
+	}
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Exception {
+		if (method.getDeclaringClass() == Object.class) {
+			return method.invoke(this, args);
+		} else if ("getLogLevel".equals(method.getName())) {
+			return logLevel;
+		} else if ("setLogLevel".equals(method.getName())) {
+			logLevel = (LogLevel) args[0];
+		} else if (method.getReturnType() == boolean.class) {
+			return false;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,267 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.blackducksoftware.sdk.protex.project.codetree.CodeTreeNode;
+import com.blackducksoftware.sdk.protex.project.codetree.CodeTreeNodeType;
+import com.blackducksoftware.sdk.protex.project.codetree.NodeCount;
+import com.blackducksoftware.sdk.protex.project.codetree.NodeCountType;
+
+public class CodeTreeSnapshotStoreTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		final CodeTreeSnapshotStore store = new CodeTreeSnapshotStore(folder.getRoot());
+		final List<CodeTreeNode> nodes = new ArrayList<CodeTreeNode>();
+		nodes.add(createNode("/", CodeTreeNodeType.FOLDER, NodeCountType.PENDING_ID_ALL, 42L));
+		nodes.add(createNode("/src/Caf\u00e9.java", CodeTreeNodeType.FILE, NodeCountType.PENDING_ID_ALL, 3L));
+		nodes.add(createNode(null, null, null, 0L));
+
+		store.put("c_project", NodeCountType.PENDING_ID_ALL, 1000L, nodes);
+		final List<CodeTreeNode> read = store.get("c_project", NodeCountType.PENDING_ID_ALL, 1000L);
+
+		assertNotNull(read);
+		assertEquals(3, read.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			assertEquals(nodes.get(i).getName(), read.get(i).getName());
+			assertEquals(nodes.get(i).getNodeType(), read.get(i).getNodeType());
+			assertEquals(1, read.get(i).getNodeCounts().size());
+			assertEquals(nodes.get(i).getNodeCounts().get(0).getCountType(),
+					read.get(i).getNodeCounts().get(0).getCountType());
+			assertEquals(nodes.get(i).getNodeCounts().get(0).getCount(), read.get(i).getNodeCounts().get(0).getCount());
+		}
+	}
+
+	@Test
+	public void testMissingSnapshot() throws Exception {
+		final CodeTreeSnapshotStore store = new CodeTreeSnapshotStore(folder.getRoot());
+		store.put("c_project", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/"));
+
+		assertNull(store.get("c_project", NodeCountType.PENDING_ID_ALL, 2000L));
+		assertNull(store.get("c_project", NodeCountType.VIOLATIONS, 1000L));
+		assertNull(store.get("c_other", NodeCountType.PENDING_ID_ALL, 1000L));
+	}
+
+	@Test
+	public void testNewerAnalysisReplacesOlderSnapshot() throws Exception {
+		final CodeTreeSnapshotStore store = new CodeTreeSnapshotStore(folder.getRoot());
+		store.put("c_project", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/old"));
+		store.put("c_project", NodeCountType.VIOLATIONS, 1000L, createNodes("/violations"));
+		store.put("c_project", NodeCountType.PENDING_ID_ALL, 2000L, createNodes("/new"));
+
+		assertNull(store.get("c_project", NodeCountType.PENDING_ID_ALL, 1000L));
+		assertEquals("/new", store.get("c_project", NodeCountType.PENDING_ID_ALL, 2000L).get(0).getName());
+		assertEquals("/violations", store.get("c_project", NodeCountType.VIOLATIONS, 1000L).get(0).getName());
+		assertEquals(2, listSnapshots().length);
+	}
+
+	@Test
+	public void testCorruptSnapshotIsDropped() throws Exception {
+		final CodeTreeSnapshotStore store = new CodeTreeSnapshotStore(folder.getRoot());
+		store.put("c_project", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/"));
+		final File snapshot = listSnapshots()[0];
+
+		final DataOutputStream out = new DataOutputStream(new FileOutputStream(snapshot));
+		try {
+			out.writeInt(0x50435453);
+			out.writeInt(1);
+			// A node total that would not fit in the file
+			out.writeInt(Integer.MAX_VALUE);
+		} finally {
+			out.close();
+		}
+
+		assertNull(store.get("c_project", NodeCountType.PENDING_ID_ALL, 1000L));
+		assertFalse(snapshot.exists());
+	}
+
+	@Test
+	public void testTruncatedSnapshotIsDropped() throws Exception {
+		final CodeTreeSnapshotStore store = new CodeTreeSnapshotStore(folder.getRoot());
+		store.put("c_project", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/"));
+		final File snapshot = listSnapshots()[0];
+
+		final FileOutputStream out = new FileOutputStream(snapshot);
+		try {
+			out.write(new byte[] { 1, 2, 3 });
+		} finally {
+			out.close();
+		}
+
+		assertNull(store.get("c_project", NodeCountType.PENDING_ID_ALL, 1000L));
+		assertFalse(snapshot.exists());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() throws Exception {
+		final CodeTreeSnapshotStore unbounded = new CodeTreeSnapshotStore(folder.getRoot());
+		unbounded.put("c_first", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/"));
+		unbounded.put("c_secnd", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/"));
+		final File first = findSnapshot("c_first");
+		final File second = findSnapshot("c_secnd");
+		final long snapshotBytes = first.length();
+		assertEquals(snapshotBytes, second.length());
+
+		final long now = System.currentTimeMillis();
+		first.setLastModified(now - 20000L);
+		second.setLastModified(now - 10000L);
+		// Reading the first snapshot makes the second one the least recently used
+		assertNotNull(unbounded.get("c_first", NodeCountType.PENDING_ID_ALL, 1000L));
+
+		final CodeTreeSnapshotStore bounded = new CodeTreeSnapshotStore(folder.getRoot(),
+				snapshotBytes * 2 + snapshotBytes / 2);
+		bounded.put("c_third", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/"));
+
+		assertNotNull(bounded.get("c_first", NodeCountType.PENDING_ID_ALL, 1000L));
+		assertNull(bounded.get("c_secnd", NodeCountType.PENDING_ID_ALL, 1000L));
+		assertNotNull(bounded.get("c_third", NodeCountType.PENDING_ID_ALL, 1000L));
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		final CodeTreeSnapshotStore store = new CodeTreeSnapshotStore(folder.getRoot());
+		store.put("c_project", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/"));
+		store.put("c_project", NodeCountType.VIOLATIONS, 1000L, createNodes("/"));
+		store.put("c_project2", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/"));
+
+		store.invalidate("c_project");
+
+		assertNull(store.get("c_project", NodeCountType.PENDING_ID_ALL, 1000L));
+		assertNull(store.get("c_project", NodeCountType.VIOLATIONS, 1000L));
+		assertNotNull(store.get("c_project2", NodeCountType.PENDING_ID_ALL, 1000L));
+	}
+
+	@Test
+	public void testProjectIdEncodingIsUnambiguous() throws Exception {
+		final CodeTreeSnapshotStore store = new CodeTreeSnapshotStore(folder.getRoot());
+		store.put("_1", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/underscore"));
+		store.put("\u05f1", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/hebrew"));
+
+		assertEquals("/underscore", store.get("_1", NodeCountType.PENDING_ID_ALL, 1000L).get(0).getName());
+		assertEquals("/hebrew", store.get("\u05f1", NodeCountType.PENDING_ID_ALL, 1000L).get(0).getName());
+		assertEquals(2, listSnapshots().length);
+	}
+
+	@Test
+	public void testGetWhilePutting() throws Exception {
+		final CodeTreeSnapshotStore unbounded = new CodeTreeSnapshotStore(folder.getRoot());
+		unbounded.put("c_stable", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/stable"));
+		final long snapshotBytes = findSnapshot("c_stable").length();
+		// Room for about three snapshots, so the writer keeps evicting
+		final CodeTreeSnapshotStore store = new CodeTreeSnapshotStore(folder.getRoot(), snapshotBytes * 3);
+
+		final AtomicReference<Throwable> writerFailure = new AtomicReference<Throwable>();
+		final AtomicBoolean done = new AtomicBoolean();
+		final Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < 500; i++) {
+						store.put("c_stable", NodeCountType.PENDING_ID_ALL, 1000L, createNodes("/stable"));
+						store.put("c_churn" + (i % 10), NodeCountType.PENDING_ID_ALL, 1000L,
+								createNodes("/churn" + (i % 10)));
+					}
+				} catch (final Throwable t) {
+					writerFailure.set(t);
+				} finally {
+					done.set(true);
+				}
+			}
+		});
+		writer.start();
+
+		int reads = 0;
+		while (!done.get()) {
+			final int project = reads % 10;
+			final List<CodeTreeNode> churn = store.get("c_churn" + project, NodeCountType.PENDING_ID_ALL, 1000L);
+			if (churn != null) {
+				assertEquals("/churn" + project, churn.get(0).getName());
+			}
+			final List<CodeTreeNode> stable = store.get("c_stable", NodeCountType.PENDING_ID_ALL, 1000L);
+			if (stable != null) {
+				assertEquals("/stable", stable.get(0).getName());
+			}
+			reads++;
+		}
+		writer.join();
+
+		assertNull(writerFailure.get());
+	}
+
+	private List<CodeTreeNode> createNodes(final String name) {
+		final List<CodeTreeNode> nodes = new ArrayList<CodeTreeNode>();
+		nodes.add(createNode(name, CodeTreeNodeType.FOLDER, NodeCountType.PENDING_ID_ALL, 1L));
+		return nodes;
+	}
+
+	private CodeTreeNode createNode(final String name, final CodeTreeNodeType nodeType,
+			final NodeCountType countType, final long count) {
+		final CodeTreeNode node = new CodeTreeNode();
+		node.setName(name);
+		node.setNodeType(nodeType);
+		final NodeCount nodeCount = new NodeCount();
+		nodeCount.setCountType(countType);
+		nodeCount.setCount(count);
+		node.getNodeCounts().add(nodeCount);
+		return node;
+	}
+
+	private File[] listSnapshots() {
+		return folder.getRoot().listFiles(new FileFilter() {
+			@Override
+			public boolean accept(final File file) {
+				return file.getName().endsWith(".snapshot");
+			}
+		});
+	}
+
+	private File findSnapshot(final String encodedProjectId) {
+		for (final File snapshot : listSnapshots()) {
+			if (snapshot.getName().startsWith(encodedProjectId.replace("_", ".005f") + "_")) {
+				return snapshot;
+			}
+		}
+		throw new AssertionError("No snapshot for " + encodedProjectId);
+	}
+}
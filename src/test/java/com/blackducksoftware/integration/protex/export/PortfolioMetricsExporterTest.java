@@ -0,0 +1,271 @@
+/**
+ * General Code for Protex Integration with CI systems
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.protex.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.ProtexFacadeException;
+import com.blackducksoftware.integration.protex.TestLogger;
+import com.blackducksoftware.sdk.protex.project.codetree.NodeCountType;
+
+public class PortfolioMetricsExporterTest {
+	private static final String HEADER = "projectId,pendingIds,violationCount\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Set<String> fetched = Collections.synchronizedSet(new HashSet<String>());
+
+	private final Set<String> failing = new HashSet<String>();
+
+	private List<String> projectIds = Collections.emptyList();
+
+	private File output;
+
+	private File checkpoint;
+
+	@Before
+	public void setUp() throws Exception {
+		output = new File(folder.getRoot(), "metrics.csv");
+		checkpoint = new File(folder.getRoot(), "metrics.checkpoint");
+	}
+
+	@Test
+	public void testFreshExportWritesHeader() throws Exception {
+		final int failed = createExporter(PortfolioExportFormat.CSV).export(Arrays.asList("p1", "p22"), output,
+				checkpoint);
+
+		assertEquals(0, failed);
+		assertEquals(HEADER + "p1,2,1\np22,3,1\n", read(output));
+		assertEquals("p1\np22\n", read(checkpoint));
+	}
+
+	@Test
+	public void testFreshExportOverwritesOutputWithoutCheckpoint() throws Exception {
+		write(output, HEADER + "stale,1,1\n");
+
+		createExporter(PortfolioExportFormat.CSV).export(Arrays.asList("p1"), output, checkpoint);
+
+		assertEquals(HEADER + "p1,2,1\n", read(output));
+	}
+
+	@Test
+	public void testResumeSkipsCheckpointedProjects() throws Exception {
+		write(output, HEADER + "p1,2,1\n");
+		write(checkpoint, "p1\n");
+
+		createExporter(PortfolioExportFormat.CSV).export(Arrays.asList("p1", "p22"), output, checkpoint);
+
+		assertEquals(Collections.singleton("p22"), fetched);
+		assertEquals(HEADER + "p1,2,1\np22,3,1\n", read(output));
+		assertEquals("p1\np22\n", read(checkpoint));
+	}
+
+	@Test
+	public void testResumeDropsPartialLines() throws Exception {
+		write(output, HEADER + "p1,2,1\np22,3");
+		write(checkpoint, "p1\np2");
+
+		createExporter(PortfolioExportFormat.CSV).export(Arrays.asList("p1", "p22"), output, checkpoint);
+
+		assertEquals(HEADER + "p1,2,1\np22,3,1\n", read(output));
+		assertEquals("p1\np22\n", read(checkpoint));
+	}
+
+	@Test
+	public void testResumeTakesExportedProjectsFromTheOutput() throws Exception {
+		// The run stopped after writing the row of p22, before checkpointing it
+		write(output, HEADER + "p1,2,1\np22,3,1\n");
+		write(checkpoint, "p1\n");
+
+		createExporter(PortfolioExportFormat.CSV).export(Arrays.asList("p1", "p22", "p333"), output, checkpoint);
+
+		assertEquals(Collections.singleton("p333"), fetched);
+		assertEquals(HEADER + "p1,2,1\np22,3,1\np333,4,1\n", read(output));
+		assertEquals("p1\np22\np333\n", read(checkpoint));
+	}
+
+	@Test
+	public void testResumeReadsEscapedCsvIds() throws Exception {
+		write(output, HEADER + "\"a,b\",3,1\n\"say \"\"hi\"\"\",8,1\n\"two\nlines\",9,1\n\"part");
+		write(checkpoint, "");
+
+		createExporter(PortfolioExportFormat.CSV).export(Arrays.asList("a,b", "say \"hi\"", "two\nlines", "partial"),
+				output, checkpoint);
+
+		assertEquals(Collections.singleton("partial"), fetched);
+		assertEquals(HEADER + "\"a,b\",3,1\n\"say \"\"hi\"\"\",8,1\n\"two\nlines\",9,1\npartial,7,1\n",
+				read(output));
+	}
+
+	@Test
+	public void testResumeReadsEscapedJsonIds() throws Exception {
+		final String rows = "{\"projectId\":\"a\\\"b\\\\c\",\"pendingIds\":5,\"violationCount\":1}\n"
+				+ "{\"projectId\":\"tab\\u0009here\",\"pendingIds\":8,\"violationCount\":1}\n";
+		write(output, rows);
+		write(checkpoint, "");
+
+		createExporter(PortfolioExportFormat.JSON_LINES).export(Arrays.asList("a\"b\\c", "tab\there", "p1"), output,
+				checkpoint);
+
+		assertEquals(Collections.singleton("p1"), fetched);
+		assertEquals(rows + "{\"projectId\":\"p1\",\"pendingIds\":2,\"violationCount\":1}\n", read(output));
+	}
+
+	@Test
+	public void testResumeRejectsOutputInAnotherFormat() throws Exception {
+		write(output, HEADER + "p1,2,1\n");
+		write(checkpoint, "p1\n");
+
+		try {
+			createExporter(PortfolioExportFormat.JSON_LINES).export(Arrays.asList("p1", "p22"), output, checkpoint);
+			fail("Resuming a CSV export as JSON lines should fail");
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(Collections.emptySet(), fetched);
+		assertEquals(HEADER + "p1,2,1\n", read(output));
+		assertEquals("p1\n", read(checkpoint));
+	}
+
+	@Test
+	public void testExportEnumeratesProjects() throws Exception {
+		projectIds = Arrays.asList("p1", "p22");
+
+		final int failed = createExporter(PortfolioExportFormat.CSV).export(output, checkpoint);
+
+		assertEquals(0, failed);
+		assertEquals(HEADER + "p1,2,1\np22,3,1\n", read(output));
+		assertEquals("p1\np22\n", read(checkpoint));
+	}
+
+	@Test
+	public void testFailedProjectsAreNotCheckpointed() throws Exception {
+		failing.add("p22");
+
+		final int failed = createExporter(PortfolioExportFormat.CSV).export(Arrays.asList("p1", "p22", "p333"),
+				output, checkpoint);
+
+		assertEquals(1, failed);
+		assertEquals(HEADER + "p1,2,1\np333,4,1\n", read(output));
+		assertEquals("p1\np333\n", read(checkpoint));
+
+		failing.clear();
+		fetched.clear();
+		createExporter(PortfolioExportFormat.CSV).export(Arrays.asList("p1", "p22", "p333"), output, checkpoint);
+
+		assertEquals(Collections.singleton("p22"), fetched);
+		assertEquals(HEADER + "p1,2,1\np333,4,1\np22,3,1\n", read(output));
+	}
+
+	@Test
+	public void testCsvEscaping() throws Exception {
+		createExporter(PortfolioExportFormat.CSV).export(Arrays.asList("a,b", "say \"hi\"", "plain"), output,
+				checkpoint);
+
+		assertEquals(HEADER + "\"a,b\",3,1\n\"say \"\"hi\"\"\",8,1\nplain,5,1\n", read(output));
+	}
+
+	@Test
+	public void testJsonLinesEscaping() throws Exception {
+		createExporter(PortfolioExportFormat.JSON_LINES).export(Arrays.asList("a\"b\\c", "tab\there"), output,
+				checkpoint);
+
+		assertEquals("{\"projectId\":\"a\\\"b\\\\c\",\"pendingIds\":5,\"violationCount\":1}\n"
+				+ "{\"projectId\":\"tab\\u0009here\",\"pendingIds\":8,\"violationCount\":1}\n", read(output));
+	}
+
+	/**
+	 * The fake facade reports the length of the project Id as its pending Id count and 1 violation.
+	 */
+	private PortfolioMetricsExporter createExporter(final PortfolioExportFormat format) throws Exception {
+		final ProtexFacade facade = new ProtexFacade("http://localhost", "user", "password") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public List<String> getProjectIds() {
+				return projectIds;
+			}
+
+			@Override
+			public Map<NodeCountType, Long> getNodeCounts(final String projectId, final NodeCountType... countTypes)
+					throws ProtexFacadeException {
+				fetched.add(projectId);
+				if (failing.contains(projectId)) {
+					throw new ProtexFacadeException("Injected failure");
+				}
+				final Map<NodeCountType, Long> counts = new EnumMap<NodeCountType, Long>(NodeCountType.class);
+				counts.put(NodeCountType.PENDING_ID_ALL, (long) projectId.length());
+				counts.put(NodeCountType.VIOLATIONS, 1L);
+				return counts;
+			}
+		};
+		// A single thread keeps the rows in input order
+		return new PortfolioMetricsExporter(facade, TestLogger.create(), format, 1);
+	}
+
+	private void write(final File file, final String content) throws IOException {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	private String read(final File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			final byte[] bytes = new byte[(int) file.length()];
+			int offset = 0;
+			while (offset < bytes.length) {
+				offset += in.read(bytes, offset, bytes.length - offset);
+			}
+			return new String(bytes, "UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+}